@@ -1,5 +1,9 @@
 import java.awt.*;
 import java.awt.geom.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
 
 import javax.swing.*;
@@ -10,9 +14,22 @@ import javax.swing.*;
  * - ใช้ Java2D API + midpoint ellipse & circle algorithms
  * - มี motion blur รถตอนวิ่งชน
  * - ความยาวแอนิเมชัน 8 วินาที
+ * - เรนเดอร์แบบ offline ได้: java Animetion --headless (ดู OfflineRenderer)
+ * - พื้นหลังฉาก 1 วาดครั้งเดียวแล้ว drawImage ทุกเฟรม (static layer cache)
+ * - ฉาก fade จางจากเฟรมสุดท้ายของฉากก่อนหน้า (วาดครั้งเดียว) ไปเป็นสีดำใน pass เดียว (SpanBlend)
+ * - รถและ stickman เป็น sprite (TYPE_INT_ARGB_PRE) วาดครั้งเดียว ผีของ motion blur แค่ drawImage + alpha
+ * - จังหวะเฟรมใช้ FrameScheduler (-Dframe.rate=30|60|120|144, -Dframe.policy=skip|catchup)
+ * - เวลาของฉากและ easing มาจาก Timeline (-Dtimeline=FILE เพื่อโหลด timeline จากไฟล์)
  */
 public class Animetion {
+    // renderer แบบ headless (offline, RenderFarm, RasterBench) — Java2D, one thread
+    static final OfflineRenderer.Factory RENDERER = (w, h, threads) -> new RebornPanel(w, h);
+
     public static void main(String[] args) {
+        if (OfflineRenderer.isHeadless(args)) {
+            OfflineRenderer.run(args, RENDERER);
+            return;
+        }
         SwingUtilities.invokeLater(() -> {
             JFrame f = new JFrame("WHAT IF I REBORNED — stickman isekai slime vibe");
             f.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -24,16 +41,50 @@ public class Animetion {
             panel.start();
         });
     }
+
+    // RasterBench: MidpointEllipse / MidpointCircle เป็น auxiliary class ของไฟล์นี้ ไฟล์อื่นไม่ควรอ้างถึงตรง ๆ
+    // จึงสร้าง operation ของแต่ละ primitive ที่นี่ (ขนาด primitive = size pixel); g2 == null ข้ามวงกลม
+    static void benchPrimitives(Map<String, RasterBench.Op> ops, int w, int h, int size, Graphics2D g2) {
+        int cx = w / 2, cy = h / 2, r = size / 2;
+        MidpointEllipse me = new MidpointEllipse();
+        ops.put("Animetion.ellipsePath", i -> RasterBench.consume(me.createEllipsePath(cx, cy, r + (i & 7), (r + (i & 7)) * 2 / 3).hashCode()));
+        if (g2 == null) {
+            return;
+        }
+        MidpointCircle lines = new MidpointCircle(false), spans = new MidpointCircle(true);
+        ops.put("Animetion.fillCircle.lines", i -> lines.fillMidpointCircle(g2, cx, cy, r));
+        ops.put("Animetion.fillCircle.spans", i -> spans.fillMidpointCircle(g2, cx, cy, r));
+    }
 }
 
-class RebornPanel extends JPanel {
+class RebornPanel extends JPanel implements OfflineRenderer.Scene {
     private final int W, H;
-    private Timer timer;
-    private long startTime;
+    private FrameScheduler scheduler;
+    private volatile long frameMillis; // เวลาในลูปของเฟรมล่าสุด (ms) ตั้งโดย scheduler
     private final int FPS = 60;
-    private final int DURATION_MS = 8000; // 8 วินาที
+    // ฉากและ keyframe: street 0-2s, fade 2-3s, slime 3-8s (แทนที่ได้ด้วย -Dtimeline=FILE)
+    private final Timeline timeline = Timeline.fromProperties(new Timeline(false)
+            .scene("street", 2).scene("fade", 3).scene("slime", 8)
+            .key("fade.alpha", 2, 0).key("fade.alpha", 3, 255)
+            .key("slime.grow", 3, 0, Timeline.Easing.EASE_OUT_BOUNCE).key("slime.grow", 8, 1)
+            .key("slime.squash", 3, 0, Timeline.Easing.EASE_OUT_QUAD).key("slime.squash", 8, 1))
+            .requireScenes("street", "fade", "slime");
+    private final Timeline.Track fadeAlpha = timeline.track("fade.alpha");
+    private final Timeline.Track slimeGrow = timeline.track("slime.grow");
+    private final Timeline.Track slimeSquash = timeline.track("slime.squash");
+    private final Presenter screen = new Presenter(this, "Animetion"); // วาดผ่าน VolatileImage: -Dpresent=volatile|software
+    private final int DURATION_MS = (int) Math.round(timeline.duration() * 1000);
+    private boolean ghosts = true; // motion blur ปลอมของรถ (ปิดเมื่อ MotionBlur เบลอตามเวลาจริง)
     private MidpointEllipse midpointEllipse = new MidpointEllipse();
     private MidpointCircle midpointCircle = new MidpointCircle();
+    private BufferedImage frameImage; // เฟรมสำหรับเรนเดอร์แบบ offline
+    private BufferedImage streetLayer; // cache พื้นหลังฉาก 1 (ดู streetLayer())
+    private BufferedImage fadeFrom, fadeFrame; // ฉาก fade: เฟรมต้นทาง (cache) และเฟรมที่จางแล้ว
+    private int fadeFromScene = -1;           // ฉากที่ fadeFrom วาดมา
+    private BufferedImage truckSprite, stickmanSprite; // actor sprites (ดู sprite())
+    // ตำแหน่ง origin ของ actor ใน sprite: รถ (x, y) = มุมล่างซ้ายตัวถัง, stickman = เท้า (x, groundY)
+    private static final int TRUCK_OX = 2, TRUCK_OY = 112, TRUCK_W = 214, TRUCK_H = 136;
+    private static final int MAN_OX = 34, MAN_OY = 144, MAN_W = 68, MAN_H = 150;
 
     public RebornPanel(int w, int h) {
         this.W = w;
@@ -43,79 +94,181 @@ class RebornPanel extends JPanel {
     }
 
     public void start() {
-        startTime = System.currentTimeMillis();
-        timer = new Timer(1000 / FPS, e -> {
-            long elapsed = System.currentTimeMillis() - startTime;
-            if (elapsed > DURATION_MS) {
-                startTime = System.currentTimeMillis(); // loop
-            }
+        // เวลาในเฟรมมาจาก deadline ของ scheduler ไม่ใช่นาฬิกาตอนที่ Timer ตื่น
+        scheduler = FrameScheduler.fromProperties(FPS, (i, t) -> {
+            frameMillis = Math.round(t * 1000) % DURATION_MS; // loop
             repaint();
         });
-        timer.start();
+        scheduler.start("reborn-frames");
     }
 
     @Override
     protected void paintComponent(Graphics g0) {
-        super.paintComponent(g0);
-        Graphics2D g = (Graphics2D) g0.create();
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        // วาดทั้งเฟรมลง back surface (VRAM) ด้วย Java2D แล้ว copy ขึ้นจอ; headless/-Dpresent=software วาดลง g0 ตรง ๆ
+        long ms = frameMillis;
+        screen.present(g0, (sg, clip) -> {
+            Graphics2D g = (Graphics2D) sg.create();
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            paintFrame(g, ms);
+            g.dispose();
+        });
+    }
 
-        long t = System.currentTimeMillis() - startTime;
-        double tt = t / (double) DURATION_MS;
+    // วาดเฟรม ณ เวลา t (ms) — ใช้ร่วมกันทั้งบนจอและ offline
+    private void paintFrame(Graphics2D g, long ms) {
+        double t = ms / 1000.0;
+        int scene = timeline.scene(t);
+        paintScene(g, scene, t, timeline.progress(scene, t)); // progress 0..1 ภายในฉาก
+    }
 
-        // แบ่งเป็น 3 ฉากตามเวลา
-        if (tt < 0.25) {
-            paintScene1(g, tt / 0.25); // 0..1 in first 2 seconds
-        } else if (tt < 0.375) {
-            paintScene2(g, (tt - 0.25) / 0.125); // fade out 2-3s
-        } else {
-            paintScene3(g, (tt - 0.375) / 0.625); // slime scene 3-8s
+    private void paintScene(Graphics2D g, int scene, double t, double progress) {
+        switch (timeline.name(scene)) {
+            case "street":
+                paintScene1(g, progress);
+                break;
+            case "fade":
+                paintScene2(g, t);
+                break;
+            default:
+                paintScene3(g, t, progress);
         }
+    }
+
+    // ---------- Offline rendering (fixed timestep, ไม่ต้องมีหน้าต่าง) ----------
+    @Override
+    public int frameWidth() {
+        return W;
+    }
+
+    @Override
+    public int frameHeight() {
+        return H;
+    }
+
+    @Override
+    public double duration() {
+        return timeline.duration();
+    }
+
+    @Override
+    public void motionGhosts(boolean on) {
+        ghosts = on;
+    }
 
+    @Override
+    public BufferedImage renderFrame(double t) {
+        if (frameImage == null) {
+            frameImage = new BufferedImage(W, H, BufferedImage.TYPE_INT_RGB);
+        }
+        Graphics2D g = frameImage.createGraphics();
+        g.setColor(getBackground());
+        g.fillRect(0, 0, W, H);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        paintFrame(g, Math.round(t * 1000) % DURATION_MS);
         g.dispose();
+        return frameImage;
     }
 
     // ฉาก 1: stickman เดิน+รถวิ่งชน + motion blur
     private void paintScene1(Graphics2D g, double progress) {
-        // background
-        GradientPaint bg = new GradientPaint(0, 0, new Color(20, 20, 40), 0, H, new Color(5, 5, 15));
-        g.setPaint(bg);
-        g.fillRect(0, 0, W, H);
+        // background + ground (static layer วาดครั้งเดียว)
+        g.drawImage(streetLayer(), 0, 0, null);
 
         int groundY = H - 100;
 
-        // ground line
-        g.setColor(new Color(30, 80, 50));
-        g.fillRect(0, groundY, W, H - groundY);
-
         // stickman position: เดินจากซ้ายกลางจอ (x from 100 to 280)
         int stickmanX = 100 + (int) (180 * progress);
         int stickmanY = groundY;
 
-        drawStickman(g, stickmanX, stickmanY);
+        if (stickmanSprite == null) {
+            stickmanSprite = sprite(MAN_W, MAN_H);
+            Graphics2D sg = stickmanSprite.createGraphics();
+            sg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            drawStickman(sg, MAN_OX, MAN_OY);
+            sg.dispose();
+        }
+        g.drawImage(stickmanSprite, stickmanX - MAN_OX, stickmanY - MAN_OY, null);
 
         // รถวิ่งจากขวาเข้ามา (x from 650 to 280)
         int carStartX = W + 50;
         int carEndX = stickmanX + 15; // ใกล้ stickman เลย
         int carX = (int) (carStartX + (carEndX - carStartX) * progress);
 
-        // motion blur effect รถ: วาดรถซ้อน 5 ชั้นโปร่งใสลดหลั่น
-       for (int i = 0; i < 5; i++) {
+        if (truckSprite == null) {
+            truckSprite = sprite(TRUCK_W, TRUCK_H);
+            Graphics2D sg = truckSprite.createGraphics();
+            sg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            drawTruck(sg, TRUCK_OX, TRUCK_OY);
+            sg.dispose();
+        }
+
+        // motion blur effect รถ: วาดรถซ้อน 5 ชั้นโปร่งใสลดหลั่น (blit sprite เดียวกันด้วย alpha ต่างกัน)
+        Composite oldComp = g.getComposite();
+        for (int i = 0; i < (ghosts ? 5 : 1); i++) {
             float alpha = 0.15f * (5 - i);
             int blurX = carX + i * 15;  // blur ขยับเยอะขึ้นให้ชัดเจน
-            drawTruck(g, blurX, groundY - 20, alpha);
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+            g.drawImage(truckSprite, blurX - TRUCK_OX, groundY - 20 - TRUCK_OY, null);
         }
+        g.setComposite(oldComp);
+    }
+
+    // sprite ว่างแบบโปร่งใส: บนจอเป็น managed image รูปแบบเดียวกับจอ (Java2D cache ไว้ใน VRAM),
+    // headless เป็น premultiplied ARGB: drawImage + AlphaComposite ลง INT_RGB/ARGB ใช้ loop blit ตรง ๆ
+    private BufferedImage sprite(int w, int h) {
+        return Presenter.compatibleImage(this, w, h, Transparency.TRANSLUCENT, BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    // พื้นหลังฉาก 1 (gradient + พื้น) ไม่เปลี่ยนระหว่างเฟรม: วาดลง off-screen ครั้งเดียวต่อขนาดจอ
+    private BufferedImage streetLayer() {
+        if (streetLayer == null) {
+            streetLayer = Presenter.compatibleImage(this, W, H, Transparency.OPAQUE, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = streetLayer.createGraphics();
+            g.setPaint(new GradientPaint(0, 0, new Color(20, 20, 40), 0, H, new Color(5, 5, 15)));
+            g.fillRect(0, 0, W, H);
+            int groundY = H - 100;
+            // ground line
+            g.setColor(new Color(30, 80, 50));
+            g.fillRect(0, groundY, W, H - groundY);
+            g.dispose();
+        }
+        return streetLayer;
     }
 
     // ฉาก 2: fade to black (หน้าจอดำ)
-    private void paintScene2(Graphics2D g, double progress) {
-        // สีดำ fade in
-        g.setColor(new Color(0, 0, 0, (int) (255 * progress)));
-        g.fillRect(0, 0, W, H);
+    private void paintScene2(Graphics2D g, double t) {
+        // สีดำ fade in ทับเฟรมสุดท้ายของฉากก่อนหน้า
+        int a = (int) fadeAlpha.value(t);
+        int prev = timeline.scene(t) - 1;
+        if (a >= 255 || prev < 0 || timeline.name(prev).equals("fade")) {
+            g.setColor(Color.BLACK); // ผลเป็นสีเดียว: fill อย่างเดียว
+            g.fillRect(0, 0, W, H);
+            return;
+        }
+        if (fadeFrom == null || fadeFromScene != prev) {
+            if (fadeFrom == null) {
+                fadeFrom = new BufferedImage(W, H, BufferedImage.TYPE_INT_RGB);
+                fadeFrame = new BufferedImage(W, H, BufferedImage.TYPE_INT_RGB);
+            }
+            Graphics2D fg = fadeFrom.createGraphics();
+            fg.setColor(getBackground());
+            fg.fillRect(0, 0, W, H);
+            fg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            paintScene(fg, prev, timeline.end(prev), 1.0);
+            fg.dispose();
+            fadeFromScene = prev;
+        }
+        // pixel ของเฟรมต้นทางคูณ (255 - a) / 255 ลง fadeFrame ใน pass เดียว แล้ว blit ทึบ
+        int[] src = ((DataBufferInt) fadeFrom.getRaster().getDataBuffer()).getData();
+        int[] dst = ((DataBufferInt) fadeFrame.getRaster().getDataBuffer()).getData();
+        SpanBlend.blend(dst, 0, src, 0, src.length, 0, 0, 0, a);
+        g.drawImage(fadeFrame, 0, 0, null);
     }
 
     // ฉาก 3: ลืมตาเป็นสไลม์
-    private void paintScene3(Graphics2D g, double progress) {
+    private void paintScene3(Graphics2D g, double t, double progress) {
         // ค่อย ๆ fade in background เป็นโทนสีน้ำทะเลเขียว
         Color bgStart = new Color(5, 15, 10);
         Color bgEnd = new Color(20, 80, 60);
@@ -130,8 +283,8 @@ class RebornPanel extends JPanel {
         double baseRx = 130;
         double baseRy = 110;
         double pulse = 0.1 * Math.sin(progress * Math.PI * 6);
-        double rx = baseRx * (1 + pulse + 0.3 * easeOutBounce(progress));
-        double ry = baseRy * (1 - pulse + 0.15 * easeOutQuad(progress));
+        double rx = baseRx * (1 + pulse + 0.3 * slimeGrow.value(t));
+        double ry = baseRy * (1 - pulse + 0.15 * slimeSquash.value(t));
 
         // สร้าง path ellipse ด้วย midpoint ellipse algorithm
         GeneralPath slime = midpointEllipse.createEllipsePath(cx, cy, (int) rx, (int) ry);
@@ -220,10 +373,8 @@ class RebornPanel extends JPanel {
         g.drawLine(headX, groundY - 40, headX + 25, groundY);
     }
 
-    // ฟังก์ชันวาดรถแบบเรียบง่าย (มี motion blur alpha)
-    private void drawTruck(Graphics2D g, int x, int y, float alpha) {
-        Composite oldComp = g.getComposite();
-        g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+    // ฟังก์ชันวาดรถแบบเรียบง่าย (ทึบ; ความโปร่งของ motion blur ใส่ตอน drawImage sprite)
+    private void drawTruck(Graphics2D g, int x, int y) {
 
         // ตัวถังหลักของรถบรรทุก (ใหญ่ขึ้น)
         g.setColor(new Color(70, 130, 180)); // ฟ้าเข้ม
@@ -248,8 +399,6 @@ class RebornPanel extends JPanel {
         g.fillOval(x + 35, y - 15, 20, 20);
         g.fillOval(x + 105, y - 15, 20, 20);
         g.fillOval(x + 175, y - 15, 20, 20);
-
-        g.setComposite(oldComp);
     }
 
     // ผสมสีสองสี
@@ -260,99 +409,116 @@ class RebornPanel extends JPanel {
         int b = (int) (c1.getBlue() + t * (c2.getBlue() - c1.getBlue()));
         return new Color(r, g, b);
     }
-
-    // easing functions for slime pulse animation
-    private double easeOutBounce(double t) {
-        if (t < (1 / 2.75)) {
-            return 7.5625 * t * t;
-        } else if (t < (2 / 2.75)) {
-            t -= (1.5 / 2.75);
-            return 7.5625 * t * t + .75;
-        } else if (t < (2.5 / 2.75)) {
-            t -= (2.25 / 2.75);
-            return 7.5625 * t * t + .9375;
-        } else {
-            t -= (2.625 / 2.75);
-            return 7.5625 * t * t + .984375;
-        }
-    }
-
-    private double easeOutQuad(double t) {
-        return t * (2 - t);
-    }
 }
 
 /**
  * MidpointEllipse
  * วาดวงรีด้วย Midpoint Ellipse Algorithm
  * มีเมธอดสร้าง GeneralPath เพื่อใช้ fill หรือ stroke ได้
+ * - ความกว้างแต่ละแถวมาจาก EllipseSpans.midpoint (midpoint แบบ integer คำนวณครั้งเดียวต่อรัศมี)
+ * - path รอบวงรีเรียงจุดตามขอบ (ขวาลงล่าง แล้วซ้ายขึ้นบน) และ cache ไว้ที่จุดศูนย์กลาง (0,0)
+ *   ต่อ (rx, ry) แบบ LRU — แต่ละเฟรมแค่ copy แล้วเลื่อนไปที่ (cx, cy)
  */
 class MidpointEllipse {
-    public GeneralPath createEllipsePath(int cx, int cy, int rx, int ry) {
-        GeneralPath path = new GeneralPath();
-        int x = 0, y = ry;
-
-        // เริ่มวาดจาก (cx + x, cy + y)
-        path.moveTo(cx + x, cy + y);
+    private static final int MAX_PATHS = 64;
 
-        // Region 1
-        int ry2 = ry * ry;
-        int rx2 = rx * rx;
-        int twoRy2 = 2 * ry2;
-        int twoRx2 = 2 * rx2;
-        int px = 0;
-        int py = twoRx2 * y;
+    private final Map<Long, GeneralPath> paths = new LinkedHashMap<Long, GeneralPath>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, GeneralPath> e) {
+            return size() > MAX_PATHS;
+        }
+    };
 
-        // Decision parameter
-        int p = (int) (ry2 - (rx2 * ry) + (0.25 * rx2));
+    public GeneralPath createEllipsePath(int cx, int cy, int rx, int ry) {
+        GeneralPath path = new GeneralPath(outline(rx, ry));
+        path.transform(AffineTransform.getTranslateInstance(cx, cy));
+        return path;
+    }
 
-        while (px < py) {
-            x++;
-            px += twoRy2;
-            if (p < 0) {
-                p += ry2 + px;
-            } else {
-                y--;
-                py -= twoRx2;
-                p += ry2 + px - py;
-            }
-            plotEllipsePoints(path, cx, cy, x, y);
+    // path รอบวงรีที่ (0,0) ผ่านจุดขอบของทุกแถว
+    private GeneralPath outline(int rx, int ry) {
+        Long key = ((long) rx << 32) | ry;
+        GeneralPath path = paths.get(key);
+        if (path != null) {
+            return path;
         }
-
-        // Region 2
-        p = (int) (ry2 * (x + 0.5) * (x + 0.5) + rx2 * (y - 1) * (y - 1) - rx2 * ry2);
-        while (y > 0) {
-            y--;
-            py -= twoRx2;
-            if (p > 0) {
-                p += rx2 - py;
-            } else {
-                x++;
-                px += twoRy2;
-                p += rx2 - py + px;
-            }
-            plotEllipsePoints(path, cx, cy, x, y);
+        int[] half = EllipseSpans.midpoint(rx, ry);
+        path = new GeneralPath(GeneralPath.WIND_NON_ZERO, 4 * ry + 3);
+        path.moveTo(half[ry], -ry);
+        for (int y = -ry + 1; y <= ry; y++) {
+            path.lineTo(half[Math.abs(y)], y); // ขอบขวา บนลงล่าง
+        }
+        for (int y = ry; y >= -ry; y--) {
+            path.lineTo(-half[Math.abs(y)], y); // ขอบซ้าย ล่างขึ้นบน
         }
-
         path.closePath();
+        paths.put(key, path);
         return path;
     }
-
-    // วาด 4 จุด symmetric ellipse
-    private void plotEllipsePoints(GeneralPath path, int cx, int cy, int x, int y) {
-        path.lineTo(cx + x, cy + y);
-        path.lineTo(cx - x, cy + y);
-        path.lineTo(cx - x, cy - y);
-        path.lineTo(cx + x, cy - y);
-    }
 }
 
 /**
  * MidpointCircle
  * วาดวงกลมเติมเต็มด้วย Midpoint Circle Algorithm
+ * - โหมด spans (ค่าเริ่มต้น): ความกว้างแต่ละแถวจาก midpoint (cache ต่อรัศมี) แล้ว fillRect สูง 1 พิกเซล
+ *   แถวละครั้ง — ไม่มีแถวทับกัน สีโปร่งใสจึงไม่ blend ซ้ำ; rect จำนวนเต็มแกนตรงไม่ผ่าน antialiasing
+ *   (เร็วกว่า fill Shape ขั้นบันไดทั้งวงที่ Marlin ต้องคำนวณ coverage ทุกขอบ)
+ * - โหมด lines: drawLine 4 เส้นต่อ step แบบเดิม (แถวที่ซ้ำกันถูก blend ซ้ำ) เก็บไว้เทียบ benchmark
  */
 class MidpointCircle {
+    private static final int MAX_RADII = 32;
+
+    private final boolean spans;
+    private final Map<Integer, int[]> halves = new LinkedHashMap<Integer, int[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, int[]> e) {
+            return size() > MAX_RADII;
+        }
+    };
+
+    public MidpointCircle() {
+        this(true);
+    }
+
+    public MidpointCircle(boolean spans) {
+        this.spans = spans;
+    }
+
     public void fillMidpointCircle(Graphics2D g, int cx, int cy, int r) {
+        if (!spans) {
+            fillWithLines(g, cx, cy, r);
+            return;
+        }
+        int[] half = halves.computeIfAbsent(r, MidpointCircle::halfWidths);
+        for (int dy = -r; dy <= r; dy++) {
+            int h = half[Math.abs(dy)];
+            g.fillRect(cx - h, cy + dy, 2 * h + 1, 1);
+        }
+    }
+
+    // ครึ่งความกว้างของแถว dy = 0..r (x ที่ไกลสุดที่ midpoint plot ในแถวนั้น)
+    static int[] halfWidths(int r) {
+        int[] half = new int[r + 1];
+        int x = 0;
+        int y = r;
+        int d = 1 - r;
+        half[y] = Math.max(half[y], x);
+        half[x] = Math.max(half[x], y);
+        while (x < y) {
+            x++;
+            if (d < 0) {
+                d += 2 * x + 1;
+            } else {
+                y--;
+                d += 2 * (x - y) + 1;
+            }
+            half[y] = Math.max(half[y], x);
+            half[x] = Math.max(half[x], y);
+        }
+        return half;
+    }
+
+    private void fillWithLines(Graphics2D g, int cx, int cy, int r) {
         int x = 0;
         int y = r;
         int d = 1 - r;
@@ -0,0 +1,41 @@
+// DirtyRect.java
+// Bounding box of changed pixels for dirty-rectangle rendering (test2 / test3 engines, FrameRing).
+// - Half-open device-pixel box [x0, x1) x [y0, y1), clipped to fixed bounds (a band or the canvas)
+// - add() takes inclusive primitive extents in any order, so callers can pass endpoints,
+//   center +- radius, etc. directly
+// - No allocation: every box is mutated in place by the thread that owns it
+
+final class DirtyRect {
+    final int minX, minY, maxX, maxY; // bounds, half-open
+    int x0, y0, x1, y1;
+
+    DirtyRect(int minX, int minY, int maxX, int maxY){
+        this.minX = minX; this.minY = minY; this.maxX = maxX; this.maxY = maxY;
+        clear();
+    }
+
+    void clear(){ x0 = maxX; y0 = maxY; x1 = minX; y1 = minY; }
+    void full(){ x0 = minX; y0 = minY; x1 = maxX; y1 = maxY; }
+    boolean isEmpty(){ return x0 >= x1 || y0 >= y1; }
+    int width(){ return Math.max(0, x1 - x0); }
+    int height(){ return Math.max(0, y1 - y0); }
+
+    // Grow to cover the inclusive box spanned by (xa,ya) and (xb,yb).
+    void add(int xa, int ya, int xb, int yb){
+        if(xa > xb){ int t = xa; xa = xb; xb = t; }
+        if(ya > yb){ int t = ya; ya = yb; yb = t; }
+        xa = Math.max(xa, minX); ya = Math.max(ya, minY);
+        xb = Math.min(xb, maxX - 1); yb = Math.min(yb, maxY - 1);
+        if(xa > xb || ya > yb) return;
+        x0 = Math.min(x0, xa); y0 = Math.min(y0, ya);
+        x1 = Math.max(x1, xb + 1); y1 = Math.max(y1, yb + 1);
+    }
+
+    void add(DirtyRect r){ if(!r.isEmpty()) add(r.x0, r.y0, r.x1 - 1, r.y1 - 1); }
+
+    void set(DirtyRect r){ clear(); add(r); }
+
+    boolean within(int cx, int cy, int cw, int ch){
+        return isEmpty() || (x0 >= cx && y0 >= cy && x1 <= cx + cw && y1 <= cy + ch);
+    }
+}
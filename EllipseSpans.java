@@ -0,0 +1,127 @@
+// EllipseSpans.java
+// Filled-ellipse span tables cached by radius (test3 fillEllipse), plus the midpoint outline's
+// row extents that MidpointEllipse in Animetion builds its cached outlines from (midpoint()).
+// - half(rx, ry)[y] is the half-width of row y (0..ry) of the filled ellipse, so the row covers
+//   xc - half .. xc + half. The rows are exactly the ones the per-row fill always drew,
+//   floor(rx * sqrt(1 - y^2 / ry^2)): caching changes when they are computed, not the shape
+// - A table is computed once per (rx, ry), so a frame does no sqrt per row, and it is reused
+//   across frames and across shapes of the same size (both eyes)
+// - The cache is LRU-bounded; the pulsing slime and its eyes only ever hit a small set of radii,
+//   so nearly every lookup is a hit (hits() / misses())
+// - midpoint(rx, ry)[y] is the largest x the integer midpoint algorithm plots on row y (integer
+//   decision variables only). Its flat top and bottom rows are wider than the fill's, which is
+//   why the fill does not use it
+// - Tables are shared and must not be modified. A cache is not thread-safe: each band engine or
+//   panel owns one, like LayerCache
+//
+// Self-check (fill rows against the per-row sqrt fill, midpoint rows against the analytic
+// ellipse, cache against fresh tables):
+//   javac EllipseSpans.java && java EllipseSpans
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+final class EllipseSpans {
+    static final int MAX_ENTRIES = 64;
+
+    private final Map<Long, int[]> tables = new LinkedHashMap<Long, int[]>(16, 0.75f, true){
+        @Override protected boolean removeEldestEntry(Map.Entry<Long, int[]> e){ return size() > MAX_ENTRIES; }
+    };
+    private int lastRx = -1, lastRy = -1; // most recent lookup, checked before the map
+    private int[] last;
+    private long hits, misses;
+
+    long hits(){ return hits; }
+    long misses(){ return misses; }
+
+    // Half-widths of rows 0..ry of the ellipse with radii rx, ry (>= 0).
+    int[] half(int rx, int ry){
+        if(rx == lastRx && ry == lastRy){ hits++; return last; }
+        Long key = ((long)rx << 32) | ry;
+        int[] t = tables.get(key);
+        if(t == null){ misses++; t = compute(rx, ry); tables.put(key, t); }
+        else hits++;
+        lastRx = rx; lastRy = ry; last = t;
+        return t;
+    }
+
+    // Half-widths of the filled ellipse's rows, as the per-row fill computed them.
+    static int[] compute(int rx, int ry){
+        if(rx < 0 || ry < 0) throw new IllegalArgumentException("negative radius " + rx + "x" + ry);
+        int[] half = new int[ry + 1];
+        for(int y = 0; y <= ry; y++) half[y] = (int)Math.floor(rx * Math.sqrt(1.0 - (y*y) / (double)(ry*ry)));
+        return half;
+    }
+
+    // Integer midpoint ellipse (same decision variables as the outline in test3/test2), keeping
+    // the outermost x plotted on each row.
+    static int[] midpoint(int rx, int ry){
+        if(rx < 0 || ry < 0) throw new IllegalArgumentException("negative radius " + rx + "x" + ry);
+        int[] half = new int[ry + 1];
+        long rx2 = 1L*rx*rx, ry2 = 1L*ry*ry;
+        long x = 0, y = ry, px = 0, py = 2*rx2*y;
+        long p = Math.round(ry2 - rx2*ry + 0.25*rx2);
+        while(px < py){
+            half[(int)y] = (int)x;
+            x++; px += 2*ry2;
+            if(p < 0){ p += ry2 + px; }
+            else { y--; py -= 2*rx2; p += ry2 + px - py; }
+        }
+        p = Math.round(ry2*(x+0.5)*(x+0.5) + rx2*(y-1)*(y-1) - rx2*ry2);
+        while(y >= 0){
+            half[(int)y] = (int)x;
+            y--; py -= 2*rx2;
+            if(p > 0){ p += rx2 - py; }
+            else { x++; px += 2*ry2; p += rx2 - py + px; }
+        }
+        return half;
+    }
+
+    public static void main(String[] args){
+        // Fill rows: exactly the rows of the per-row sqrt fill this cache replaced, which skipped
+        // rows with a negative radicand and drew the rest from xc - xx to xc + xx.
+        for(int rx = 0; rx <= 400; rx++) for(int ry = 0; ry <= 400; ry++){
+            int[] half = compute(rx, ry);
+            for(int yy = -ry; yy <= ry; yy++){
+                double t = 1.0 - (yy*yy) / (double)(ry*ry);
+                if(t < 0) throw new AssertionError(rx + "x" + ry + " row " + yy + " has no span in the sqrt fill");
+                int xx = (int)Math.floor(rx * Math.sqrt(t));
+                if(half[Math.abs(yy)] != xx)
+                    throw new AssertionError(rx + "x" + ry + " row " + yy + ": half-width " + half[Math.abs(yy)] + ", the sqrt fill drew " + xx);
+            }
+        }
+
+        // Midpoint rows: row y of the midpoint ellipse covers the x whose boundary point is nearest
+        // that row, so its half-width lies between the analytic half-width at the row centre and at
+        // its outer edge (y - 0.5), give or take the pixel the decision variables round to. Checked
+        // for radii up to 400 and aspect ratios up to 8:1; flatter ellipses drift further near the
+        // poles.
+        for(int rx = 1; rx <= 400; rx++) for(int ry = 1; ry <= 400; ry++){
+            if(rx > 8*ry || ry > 8*rx) continue;
+            int[] half = midpoint(rx, ry);
+            for(int y = 0; y <= ry; y++){
+                double edge = Math.max(0, y - 0.5);
+                double centre = rx*Math.sqrt(1.0 - (double)y*y/((double)ry*ry));
+                double outer = rx*Math.sqrt(Math.max(0, 1.0 - edge*edge/((double)ry*ry)));
+                if(half[y] < Math.floor(centre) - 1 || half[y] > outer + 1)
+                    throw new AssertionError(String.format(Locale.ROOT, "midpoint %dx%d row %d: half-width %d outside [%.2f, %.2f]",
+                            rx, ry, y, half[y], Math.floor(centre) - 1, outer + 1));
+            }
+        }
+
+        // cached lookups (with evictions) return the same rows as fresh tables
+        EllipseSpans cache = new EllipseSpans();
+        Random rnd = new Random(5);
+        for(int i = 0; i < 20000; i++){
+            int rx = rnd.nextInt(3*MAX_ENTRIES), ry = 1 + rnd.nextInt(8);
+            if(!Arrays.equals(cache.half(rx, ry), compute(rx, ry))) throw new AssertionError("cached table differs for " + rx + "x" + ry);
+        }
+        if(cache.tables.size() > MAX_ENTRIES) throw new AssertionError("cache grew to " + cache.tables.size() + " tables");
+
+        System.out.println("fill rows match the sqrt fill; midpoint rows lie on the ellipse");
+        System.out.printf(Locale.ROOT, "cache: %d hits, %d misses%n", cache.hits(), cache.misses());
+    }
+}
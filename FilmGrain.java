@@ -0,0 +1,83 @@
+// FilmGrain.java
+// Film grain from a precomputed tileable noise texture (test3 street scene).
+// - The texture is TILE x TILE signed offsets: about one texel in `strength` holds a brightness
+//   offset in -10..10 (added to r, g and b with clamping), the rest are 0. It is built once per
+//   strength from a fixed seed and shared, read-only, by every band. Rows are stored sparse (the
+//   columns and offsets of their grain texels only), so a frame touches just the grained pixels
+// - Each frame reads the texture at an offset derived from its frame number (SplitMix64 of the
+//   frame), so the grain moves from frame to frame while any frame still renders the same on its
+//   own; no random numbers are drawn per frame or per pixel
+// - Works on any rectangle (a band's dirty region), so bands grain their own rows in parallel
+//   and a partial repaint only touches what it restores
+//
+// -Dgrain.animate=false keeps one grain pattern for every frame (frame 0), so the grain never
+// changes pixels by itself and the dirty rectangles stay small.
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class FilmGrain {
+    static final int TILE = 512, MASK = TILE - 1;
+    private static final long SEED = 1234;
+    private static final ConcurrentHashMap<Integer, Tile> TILES = new ConcurrentHashMap<>();
+
+    // Grain texels of the texture, row by row: row r is xs/ks[start[r] .. start[r + 1]).
+    static final class Tile {
+        final int[] start = new int[TILE + 1];
+        final short[] xs; final byte[] ks;
+        Tile(byte[] dense){
+            int n = 0;
+            for(byte k : dense) if(k != 0) n++;
+            xs = new short[n]; ks = new byte[n];
+            for(int r = 0, j = 0; r < TILE; r++){
+                start[r] = j;
+                for(int x = 0; x < TILE; x++){ byte k = dense[r * TILE + x]; if(k != 0){ xs[j] = (short)x; ks[j] = k; j++; } }
+            }
+            start[TILE] = n;
+        }
+    }
+
+    private FilmGrain(){}
+
+    static boolean animated(){ return !"false".equals(System.getProperty("grain.animate")); }
+
+    // Noise texture with about one grain texel in `strength`.
+    static Tile tile(int strength){
+        if(strength < 1) throw new IllegalArgumentException("grain strength must be >= 1: " + strength);
+        return TILES.computeIfAbsent(strength, s -> {
+            SplittableRandom r = new SplittableRandom(SEED);
+            byte[] t = new byte[TILE * TILE];
+            for(int i = 0; i < t.length; i++) if(r.nextInt(s) == 0) t[i] = (byte)(r.nextInt(21) - 10);
+            return new Tile(t);
+        });
+    }
+
+    // SplitMix64 finalizer: frame number -> texture offset bits.
+    static long mix(long z){
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Add the grain of `frame` to the pixels of pix (row length w) inside rc.
+    static void apply(int[] pix, int w, DirtyRect rc, int strength, long frame){
+        if(rc.isEmpty()) return;
+        Tile tile = tile(strength);
+        short[] xs = tile.xs; byte[] ks = tile.ks;
+        long h = mix(frame);
+        int ox = (int)h & MASK, oy = (int)(h >>> 32) & MASK;
+        for(int y = rc.y0; y < rc.y1; y++){
+            int row = (y + oy) & MASK, base = y * w;
+            for(int j = tile.start[row], e = tile.start[row + 1]; j < e; j++){
+                int px = (xs[j] - ox) & MASK;                  // texel column on screen, then every TILE
+                for(int x = px + ((rc.x0 - px + MASK) & ~MASK); x < rc.x1; x += TILE){
+                    int k = ks[j], i = base + x, c = pix[i];
+                    int r = ((c >>> 16) & 255) + k, g = ((c >>> 8) & 255) + k, b = (c & 255) + k;
+                    r = r < 0 ? 0 : r > 255 ? 255 : r; g = g < 0 ? 0 : g > 255 ? 255 : g; b = b < 0 ? 0 : b > 255 ? 255 : b;
+                    pix[i] = (c & 0xFF000000) | r << 16 | g << 8 | b;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+// FrameRing.java
+// Ring of back buffers between the render thread and the EDT (test2 / test3 panels).
+// - The render thread draws into its own back buffer while the EDT blits the front buffer,
+//   so a frame is never presented half-drawn (no tearing) and rendering frame N+1 overlaps
+//   presenting frame N
+// - Hand-off is one atomic swap of a buffer index (no locks): publish() swaps the finished
+//   back buffer into the shared slot, present() swaps the newest finished frame out to the EDT.
+//   The EDT reads a frame's changed region before it owns the buffer, so it copies the region and
+//   uses the copy only if the slot has not moved on meanwhile (like a seqlock)
+// - Triple buffering (default): the renderer never waits; a frame the EDT did not get to in
+//   time is replaced by the next one (counted by overwritten())
+// - Double buffering: the renderer waits in acquire() until the EDT has taken the last frame,
+//   so the render rate is bounded by presentation (like vsync)
+// - Dirty rectangles: every published frame carries the region that changed since the newest
+//   frame the EDT may be showing (frames it never took included). The panel repaints just that
+//   region, and present() only takes a frame once the repaint clip covers it, so a partial
+//   repaint never mixes two frames on screen. A frame that changed nothing is never published
+//
+// - Pixel format: every frame is opaque (each scene clears to an opaque color and the engines'
+//   blend is premultiplied source-over), so the buffers default to TYPE_INT_RGB: the EDT blit is a
+//   plain copy with no alpha conversion. TYPE_INT_ARGB_PRE and TYPE_INT_ARGB hold the same pixels
+//   and are kept for comparison (RasterBench format.*)
+//
+// Buffer count: -Dframe.buffers=2|3 (default 3). Buffers are allocated on first use, so an
+// offline render (which never presents) only ever allocates one.
+// Pixel format: -Dframe.format=rgb|argb_pre|argb (default rgb).
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+final class FrameRing {
+    static final int MAX_BUFFERS = 3;
+    static final int[] FORMATS = { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB_PRE, BufferedImage.TYPE_INT_ARGB };
+    private static final String[] FORMAT_NAMES = { "rgb", "argb_pre", "argb" };
+
+    private static final int FRESH = 4;      // slot flag: finished frame not yet taken by the EDT
+    private static final int INDEX = 3;
+    private static final int SEQ = 8;        // published frames also carry a sequence number (no ABA)
+    private static final long WAIT_NANOS = 100_000;
+
+    private final int w, h, format;
+    private final BufferedImage[] images;
+    private final DirtyRect[] changed;       // per buffer: region to repaint when it is presented
+    private final AtomicInteger slot;        // buffer index handed between the two threads (+ FRESH)
+    private int back = 0;                    // owned by the render thread
+    private int front;                       // owned by the EDT
+    private int seq;                         // render thread
+    private final DirtyRect sinceTaken;      // render thread: changes after the last frame known taken
+    private final DirtyRect presented;       // EDT: copy of the rectangle of the frame it may take
+    private volatile long overwritten;
+
+    FrameRing(int w, int h, int buffers){ this(w, h, buffers, defaultFormat()); }
+
+    // format: one of FORMATS (a BufferedImage int type)
+    FrameRing(int w, int h, int buffers, int format){
+        if(buffers != 2 && buffers != 3) throw new IllegalArgumentException("frame buffers must be 2 or 3");
+        formatName(format);
+        this.w = w; this.h = h; this.format = format;
+        images = new BufferedImage[buffers];
+        changed = new DirtyRect[buffers];
+        for(int i = 0; i < buffers; i++) changed[i] = new DirtyRect(0, 0, w, h);
+        sinceTaken = new DirtyRect(0, 0, w, h);
+        sinceTaken.full(); // nothing is on screen yet
+        presented = new DirtyRect(0, 0, w, h);
+        // triple: back 0, slot 1, front 2; double: the slot holds the renderer's next buffer
+        slot = new AtomicInteger(buffers == 2 ? 0 : 1);
+        front = buffers - 1;
+    }
+
+    static int defaultBuffers(){ return Integer.getInteger("frame.buffers", 3); }
+
+    static int defaultFormat(){
+        String f = System.getProperty("frame.format", "rgb");
+        for(int i = 0; i < FORMATS.length; i++) if(FORMAT_NAMES[i].equalsIgnoreCase(f)) return FORMATS[i];
+        throw new IllegalArgumentException("frame format must be rgb, argb_pre or argb: " + f);
+    }
+
+    static String formatName(int format){
+        for(int i = 0; i < FORMATS.length; i++) if(FORMATS[i] == format) return FORMAT_NAMES[i];
+        throw new IllegalArgumentException("unsupported frame format " + format);
+    }
+
+    int buffers(){ return images.length; }
+    long overwritten(){ return overwritten; }
+
+    private BufferedImage image(int i){
+        if(images[i] == null) images[i] = new BufferedImage(w, h, format);
+        return images[i];
+    }
+
+    // Render thread: pixels of the buffer to draw the next frame into.
+    int[] acquire(){
+        if(images.length == 2){
+            int s;
+            while(((s = slot.get()) & FRESH) != 0) LockSupport.parkNanos(WAIT_NANOS);
+            if(back != (s & INDEX)) sinceTaken.clear(); // the EDT took the last frame
+            back = s & INDEX;
+        }
+        return ((DataBufferInt)image(back).getRaster().getDataBuffer()).getData();
+    }
+
+    // Render thread: ring index of the buffer last returned by acquire().
+    int backIndex(){ return back; }
+
+    // Render thread: the buffer last returned by acquire(), e.g. to hand an offline frame out.
+    BufferedImage backImage(){ return image(back); }
+
+    // Render thread: the frame in the back buffer is finished and differs from the previous one
+    // inside `frameChange`; make it the newest frame. Returns the region to repaint. A frame that
+    // changes nothing on screen is not published (the panel repaints nothing, so the EDT would
+    // never take it and double buffering would wait for it forever): the renderer keeps the
+    // buffer and draws its next frame into it.
+    DirtyRect publish(DirtyRect frameChange){
+        DirtyRect c = changed[back];
+        sinceTaken.add(frameChange);
+        c.set(sinceTaken);
+        if(c.isEmpty()) return c;
+        int stamp = (++seq * SEQ) | FRESH | back;
+        if(images.length == 2){ slot.set(stamp); return c; }
+        int prev = slot.getAndSet(stamp);
+        if((prev & FRESH) != 0) overwritten++;
+        else sinceTaken.set(frameChange);      // the EDT took the previous frame
+        back = prev & INDEX;
+        return changed[stamp & INDEX];
+    }
+
+    // EDT: the newest finished frame whose changed region lies inside clip (the component's
+    // repaint clip, null for everything); otherwise the frame already on screen.
+    BufferedImage present(Rectangle clip){
+        int s;
+        while(((s = slot.get()) & FRESH) != 0){
+            if(clip != null){
+                // Once a newer frame replaces it, the renderer owns this buffer again and may be
+                // rewriting its rectangle: copy it, then trust the copy only if the slot still holds
+                // the same stamp (the sequence number rules out ABA)
+                presented.set(changed[s & INDEX]);
+                VarHandle.acquireFence(); // the copy is read before the slot is checked again
+                if(slot.get() != s) continue;
+                if(!presented.within(clip.x, clip.y, clip.width, clip.height)) break; // its repaint is on the way
+            }
+            if(slot.compareAndSet(s, front)){ front = s & INDEX; break; }
+        }
+        return image(front);
+    }
+}
@@ -0,0 +1,132 @@
+// FrameScheduler.java
+// Deadline-based frame pacing shared by all four animations.
+// - Frame k is due at start + k * period (no drift from sleep granularity or integer-ms timers)
+// - Waits with LockSupport.parkNanos and only spins for the last SPIN_NANOS before a deadline,
+//   so an idle render thread uses next to no CPU
+// - Late frames are handled by a policy: SKIP drops the missed deadlines and keeps wall-clock time,
+//   CATCH_UP renders the backlog back-to-back (bounded by MAX_CATCH_UP frames)
+// - Target rate: -Dframe.rate=30|60|120|144 (any positive rate works), policy: -Dframe.policy=skip|catchup
+//
+// Interval/CPU comparison against the old Thread.sleep(1) polling loop:
+//   javac FrameScheduler.java && java FrameScheduler
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+final class FrameScheduler {
+    enum Policy { SKIP, CATCH_UP }
+
+    // Called once per frame on the scheduler thread; t is the frame's ideal time in seconds.
+    interface Frame { void tick(long index, double t); }
+
+    private static final long SPIN_NANOS = 150_000;  // park slack on common OSes is ~50-100 us
+    private static final int MAX_CATCH_UP = 5;
+
+    private final double fps;
+    private final long period;
+    private final Policy policy;
+    private final Frame frame;
+    private volatile boolean running = true;
+    private long skipped;
+
+    FrameScheduler(double fps, Policy policy, Frame frame){
+        if(fps <= 0) throw new IllegalArgumentException("frame rate must be > 0");
+        this.fps = fps; this.policy = policy; this.frame = frame;
+        this.period = Math.round(1e9 / fps);
+    }
+
+    // Target rate from -Dframe.rate (e.g. a frame budget for code that is not paced itself).
+    static double rate(double defaultFps){ return Double.parseDouble(System.getProperty("frame.rate", String.valueOf(defaultFps))); }
+
+    // Scheduler configured from -Dframe.rate / -Dframe.policy.
+    static FrameScheduler fromProperties(double defaultFps, Frame frame){
+        double fps = rate(defaultFps);
+        Policy p = System.getProperty("frame.policy", "skip").equalsIgnoreCase("catchup") ? Policy.CATCH_UP : Policy.SKIP;
+        return new FrameScheduler(fps, p, frame);
+    }
+
+    double fps(){ return fps; }
+    long skipped(){ return skipped; }
+    void stop(){ running = false; }
+
+    // Run on a new daemon thread.
+    Thread start(String name){
+        Thread t = new Thread(this::run, name);
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    // Run the frame loop on the calling thread until stop().
+    void run(){
+        long start = System.nanoTime(), next = start, index = 0;
+        while(running){
+            waitUntil(next);
+            frame.tick(index, (next - start) / 1e9);
+            index++; next += period;
+            long late = System.nanoTime() - next;
+            if(late >= period){
+                long missed = late / period;
+                if(policy == Policy.SKIP){
+                    next += missed * period; index += missed; skipped += missed;
+                } else if(missed > MAX_CATCH_UP){
+                    long drop = missed - MAX_CATCH_UP;
+                    next += drop * period; index += drop; skipped += drop;
+                }
+            }
+        }
+    }
+
+    private static void waitUntil(long deadline){
+        long left;
+        while((left = deadline - System.nanoTime()) > SPIN_NANOS) LockSupport.parkNanos(left - SPIN_NANOS);
+        while(deadline - System.nanoTime() > 0) Thread.onSpinWait();
+    }
+
+    // ---- comparison with the Thread.sleep(1) polling loop ----
+    public static void main(String[] args){
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 2.0;
+        System.out.printf(Locale.ROOT, "%-10s %5s %10s %10s %10s %10s%n", "loop", "fps", "mean ms", "stdev ms", "max ms", "cpu %");
+        for(double fps : new double[]{ 30, 60, 120, 144 }){
+            report("sleep(1)", fps, measure(fps, seconds, false));
+            report("scheduler", fps, measure(fps, seconds, true));
+        }
+    }
+
+    private static void report(String name, double fps, double[] r){
+        System.out.printf(Locale.ROOT, "%-10s %5.0f %10.3f %10.3f %10.3f %10.1f%n", name, fps, r[0], r[1], r[2], r[3]);
+    }
+
+    // Returns {mean interval ms, stdev ms, max ms, cpu % of one core}.
+    private static double[] measure(double fps, double seconds, boolean scheduled){
+        int n = (int)(fps * seconds);
+        long[] stamps = new long[n];
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        long cpu0 = mx.getCurrentThreadCpuTime(), wall0 = System.nanoTime();
+        if(scheduled){
+            FrameScheduler[] self = new FrameScheduler[1];
+            self[0] = new FrameScheduler(fps, Policy.SKIP, (i, t) -> {
+                if(i < n) stamps[(int)i] = System.nanoTime();
+                if(i >= n - 1) self[0].stop();
+            });
+            self[0].run();
+        } else {
+            long step = (long)(1_000_000_000L / fps), last = System.nanoTime();
+            for(int k = 0; k < n; ){
+                long now = System.nanoTime();
+                if(now - last >= step){ stamps[k++] = now; last = now; }
+                else { try { Thread.sleep(1); } catch(InterruptedException ignore){} }
+            }
+        }
+        double cpu = 100.0 * (mx.getCurrentThreadCpuTime() - cpu0) / (System.nanoTime() - wall0);
+        double sum = 0, sum2 = 0, max = 0; int m = 0;
+        for(int k = 1; k < n; k++){
+            if(stamps[k] == 0 || stamps[k - 1] == 0) continue; // skipped by the scheduler
+            double iv = (stamps[k] - stamps[k - 1]) / 1e6; sum += iv; sum2 += iv * iv; max = Math.max(max, iv); m++;
+        }
+        double mean = sum / m;
+        return new double[]{ mean, Math.sqrt(Math.max(0, sum2 / m - mean * mean)), max, cpu };
+    }
+}
@@ -0,0 +1,197 @@
+// FrameStats.java
+// Per-frame instrumentation for the render loops.
+// - Per-scene and per-pass timings (background, primitives, vignette, grain, blit)
+// - Frame-time histogram (0.05 ms bins) with p50/p99
+// - Dropped frames and interval jitter for paced frames only (a FrameScheduler sets their start
+//   times); offline and farm frames are rendered back to back, so they record render time alone
+// - Optional on-canvas HUD, CSV (one row per frame) and JSON (per-scene summary) export
+//
+// Switches (GUI runs):   -Dprofile.hud=true   -Dprofile.out=frames.csv|summary.json
+// Offline runs:          java test3 --headless --profile summary.json
+
+import java.awt.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+final class FrameStats {
+    static final int BACKGROUND = 0, PRIMITIVES = 1, VIGNETTE = 2, GRAIN = 3, BLIT = 4;
+    static final String[] PASSES = { "background", "primitives", "vignette", "grain", "blit" };
+
+    private static final double BIN_MS = 0.05;
+    private static final int BINS = 2000;          // 0..100 ms, last bin collects the overflow
+    private static final int MAX_ROWS = 100_000;   // per-frame rows kept for CSV export
+    private static final ArrayList<FrameStats> EXPORTS = new ArrayList<>(); // written by one exit hook
+
+    private final double budgetMs;
+    private final Map<String, Scene> scenes = new LinkedHashMap<>();
+    private final ArrayDeque<double[]> rows = new ArrayDeque<>();
+    private final ArrayDeque<String> rowScenes = new ArrayDeque<>();
+    private long frames, lastStart = -1;
+    private double lastBlitMs;
+    private Scene current;
+
+    // Histogram and pass totals for one scene.
+    private static final class Scene {
+        final long[] hist = new long[BINS];
+        final double[] passMs = new double[PASSES.length];
+        long frames, overBudget, dropped;
+        double sumMs, maxMs, sumIv, sumIv2; long intervals;
+
+        double percentile(double p){
+            long target = (long)Math.ceil(p * frames), seen = 0;
+            for(int i = 0; i < BINS; i++){ seen += hist[i]; if(seen >= target && seen > 0) return (i + 1) * BIN_MS; }
+            return BINS * BIN_MS;
+        }
+        double jitterMs(){
+            if(intervals < 2) return 0;
+            double mean = sumIv / intervals; return Math.sqrt(Math.max(0, sumIv2 / intervals - mean * mean));
+        }
+    }
+
+    FrameStats(double targetFps){ this.budgetMs = 1000.0 / targetFps; }
+
+    static boolean hudEnabled(){ return Boolean.getBoolean("profile.hud"); }
+
+    // Record one frame paced by a FrameScheduler. startNanos is when the frame began (for
+    // interval/drop tracking), passNanos holds the CPU time per pass summed over all bands (the
+    // blit slot is filled by blit()).
+    synchronized void frame(String scene, long startNanos, long renderNanos, long[] passNanos){
+        Scene s = record(scene, renderNanos, passNanos);
+        double iv = Double.NaN;
+        if(lastStart >= 0){
+            iv = (startNanos - lastStart) / 1e6;
+            s.sumIv += iv; s.sumIv2 += iv * iv; s.intervals++;
+            s.dropped += Math.max(0, Math.round(iv / budgetMs) - 1);
+        }
+        lastStart = startNanos;
+        rows.peekLast()[1] = iv;
+    }
+
+    // Record one unpaced frame (offline / farm render): render time and passes only.
+    synchronized void frame(String scene, long renderNanos, long[] passNanos){
+        record(scene, renderNanos, passNanos);
+        lastStart = -1; // the next paced frame starts a new interval
+    }
+
+    private Scene record(String scene, long renderNanos, long[] passNanos){
+        Scene s = scenes.computeIfAbsent(scene, k -> new Scene());
+        current = s;
+        double ms = renderNanos / 1e6;
+        s.frames++; frames++;
+        s.sumMs += ms; s.maxMs = Math.max(s.maxMs, ms);
+        s.hist[Math.min(BINS - 1, (int)(ms / BIN_MS))]++;
+        if(ms > budgetMs) s.overBudget++;
+        double[] row = new double[3 + PASSES.length];
+        row[0] = frames - 1; row[1] = Double.NaN; row[2] = ms;
+        for(int p = 0; p < PASSES.length && p < passNanos.length; p++){ row[3 + p] = passNanos[p] / 1e6; s.passMs[p] += row[3 + p]; }
+        rows.addLast(row); rowScenes.addLast(scene);
+        if(rows.size() > MAX_ROWS){ rows.removeFirst(); rowScenes.removeFirst(); }
+        return s;
+    }
+
+    // Blit (drawImage on the EDT) time of the most recently presented frame.
+    synchronized void blit(long nanos){
+        lastBlitMs = nanos / 1e6;
+        if(current != null) current.passMs[BLIT] += lastBlitMs;
+        if(!rows.isEmpty()) rows.peekLast()[3 + BLIT] = lastBlitMs;
+    }
+
+    synchronized void drawHud(Graphics2D g){
+        if(current == null) return;
+        String name = "";
+        for(Map.Entry<String, Scene> e : scenes.entrySet()) if(e.getValue() == current) name = e.getKey();
+        double[] last = rows.peekLast();
+        String[] lines = {
+            String.format(Locale.ROOT, "%s  frame %d  %.2f ms (budget %.1f)", name, frames - 1, last[2], budgetMs),
+            String.format(Locale.ROOT, "p50 %.2f  p99 %.2f  max %.2f ms", current.percentile(0.5), current.percentile(0.99), current.maxMs),
+            current.intervals == 0 ? String.format(Locale.ROOT, "unpaced  over budget %d", current.overBudget)
+                    : String.format(Locale.ROOT, "dropped %d  over budget %d  jitter %.2f ms", current.dropped, current.overBudget, current.jitterMs()),
+            String.format(Locale.ROOT, "bg %.2f  prim %.2f  vig %.2f  grain %.2f  blit %.2f",
+                    last[3 + BACKGROUND], last[3 + PRIMITIVES], last[3 + VIGNETTE], last[3 + GRAIN], lastBlitMs)
+        };
+        g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        g.setColor(new Color(0, 0, 0, 160));
+        g.fillRect(4, 4, 330, 16 * lines.length + 6);
+        g.setColor(Color.WHITE);
+        for(int i = 0; i < lines.length; i++) g.drawString(lines[i], 10, 18 + 16 * i);
+    }
+
+    // Export: *.json writes the per-scene summary, anything else the per-frame CSV.
+    synchronized void export(String path) throws IOException {
+        if(path.endsWith(".json")) Files.write(Paths.get(path), json().getBytes("UTF-8"));
+        else writeCsv(path);
+    }
+
+    // Export at JVM exit when -Dprofile.out is set (GUI runs end with EXIT_ON_CLOSE). One hook
+    // serves every registered instance; only those that recorded frames are written, and if
+    // there are several, each gets its own numbered file (frames.1.csv, frames.2.csv, ...).
+    void exportOnExit(){
+        String out = System.getProperty("profile.out");
+        if(out == null) return;
+        synchronized(EXPORTS){
+            if(EXPORTS.contains(this)) return;
+            if(EXPORTS.isEmpty()) Runtime.getRuntime().addShutdownHook(new Thread(() -> exportAll(out)));
+            EXPORTS.add(this);
+        }
+    }
+
+    private static void exportAll(String out){
+        ArrayList<FrameStats> used = new ArrayList<>();
+        synchronized(EXPORTS){ for(FrameStats f : EXPORTS) if(f.frameCount() > 0) used.add(f); }
+        int dot = out.lastIndexOf('.');
+        for(int i = 0; i < used.size(); i++){
+            String path = used.size() == 1 ? out : dot < 0 ? out + "." + (i + 1) : out.substring(0, dot) + "." + (i + 1) + out.substring(dot);
+            try { used.get(i).export(path); } catch(IOException e){ System.err.println("profile export failed: " + e.getMessage()); }
+        }
+    }
+
+    synchronized long frameCount(){ return frames; }
+
+    private void writeCsv(String path) throws IOException {
+        try(PrintWriter w = new PrintWriter(Files.newBufferedWriter(Paths.get(path)))){
+            StringBuilder h = new StringBuilder("frame,scene,interval_ms,render_ms");
+            for(String p : PASSES) h.append(',').append(p).append("_ms");
+            w.println(h);
+            Iterator<String> sc = rowScenes.iterator();
+            for(double[] r : rows){
+                StringBuilder b = new StringBuilder().append((long)r[0]).append(',').append(sc.next());
+                for(int i = 1; i < r.length; i++) b.append(',').append(Double.isNaN(r[i]) ? "" : String.format(Locale.ROOT, "%.4f", r[i]));
+                w.println(b);
+            }
+        }
+    }
+
+    synchronized String json(){
+        StringBuilder b = new StringBuilder("{\n");
+        b.append(String.format(Locale.ROOT, "  \"budget_ms\": %.3f,\n  \"frames\": %d,\n  \"scenes\": {", budgetMs, frames));
+        String sep = "\n";
+        for(Map.Entry<String, Scene> e : scenes.entrySet()){
+            Scene s = e.getValue();
+            b.append(sep).append("    \"").append(e.getKey()).append("\": {");
+            b.append(String.format(Locale.ROOT,
+                    "\"frames\": %d, \"mean_ms\": %.3f, \"p50_ms\": %.3f, \"p99_ms\": %.3f, \"max_ms\": %.3f, \"over_budget\": %d, ",
+                    s.frames, s.sumMs / s.frames, s.percentile(0.5), s.percentile(0.99), s.maxMs, s.overBudget));
+            if(s.intervals > 0) b.append(String.format(Locale.ROOT, "\"dropped\": %d, \"jitter_ms\": %.3f, ", s.dropped, s.jitterMs()));
+            b.append("\"passes_mean_ms\": {");
+            for(int p = 0; p < PASSES.length; p++)
+                b.append(String.format(Locale.ROOT, "%s\"%s\": %.3f", p == 0 ? "" : ", ", PASSES[p], s.passMs[p] / s.frames));
+            b.append("}}");
+            sep = ",\n";
+        }
+        return b.append("\n  }\n}\n").toString();
+    }
+
+    // One line per scene, e.g. for stderr at the end of an offline render.
+    synchronized String summary(){
+        StringBuilder b = new StringBuilder();
+        for(Map.Entry<String, Scene> e : scenes.entrySet()){
+            Scene s = e.getValue();
+            b.append(String.format(Locale.ROOT, "%-10s %5d frames  mean %.2f  p50 %.2f  p99 %.2f  max %.2f ms  over budget %d",
+                    e.getKey(), s.frames, s.sumMs / s.frames, s.percentile(0.5), s.percentile(0.99), s.maxMs, s.overBudget));
+            if(s.intervals > 0) b.append(String.format(Locale.ROOT, "  dropped %d  jitter %.2f ms", s.dropped, s.jitterMs()));
+            b.append(System.lineSeparator());
+        }
+        return b.toString();
+    }
+}
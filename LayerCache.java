@@ -0,0 +1,109 @@
+// LayerCache.java
+// Static-layer cache for the band engines (PixelEngine in test3, AnimEngine in test2).
+// - A static layer is the part of a scene that is identical in every frame (gradients,
+//   skylines, the road, room and hospital line art); it is drawn once and snapshotted
+// - Later frames restore the band instead of redrawing it. Layers made of long runs of one
+//   color (flat walls, gradient rows, line art) are kept as runs and restored with Arrays.fill,
+//   which only writes memory; detailed layers are kept as pixels and restored with a single
+//   System.arraycopy. A plain copy reads as many bytes as it writes, so for a flat layer it
+//   costs more than redrawing it.
+// - A layer can also be restored inside a DirtyRect only (dirty-rectangle rendering: just the
+//   pixels the previous frame in that buffer drew over the layer)
+// - A layer can be restored with a color blended over it in the same pass (fade transitions:
+//   pixel layers go through SpanBlend's copying blend, runs get their blended color once per run)
+// - Layers are keyed by name; evict() drops the layers drawn with a setting that has since
+//   changed (test3's fade sources are stored vignetted). A cache belongs to one band engine, so
+//   the canvas size and the band rows are fixed for its lifetime: a new size means new engines
+//   and a new cache
+//
+// Switch: -Dlayer.cache=false draws every layer every frame (e.g. to profile the background pass)
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+final class LayerCache {
+    private static final boolean ENABLED = !"false".equals(System.getProperty("layer.cache"));
+    private static final int MIN_AVG_RUN = 16; // shorter runs: copy pixels instead
+
+    // One stored layer: either runs (ends[i] exclusive, relative to the band) or raw pixels.
+    private static final class Layer {
+        int[] ends, colors, pixels;
+    }
+
+    private final int w, from, len; // band [y0, y1) as an offset/length into the frame buffer
+    private final Map<String, Layer> layers = new HashMap<>();
+
+    LayerCache(int w, int y0, int y1){ this.w = w; this.from = y0 * w; this.len = (y1 - y0) * w; }
+
+    boolean has(String key){ return layers.containsKey(key); }
+
+    // Draw layer `key` into the band of pix; false if it has not been stored yet.
+    boolean restore(String key, int[] pix){
+        Layer l = layers.get(key);
+        if(l == null) return false;
+        if(l.pixels != null){ System.arraycopy(l.pixels, 0, pix, from, len); return true; }
+        int[] ends = l.ends, colors = l.colors;
+        for(int i = 0, start = from; i < ends.length; i++){
+            int end = from + ends[i];
+            Arrays.fill(pix, start, end, colors[i]);
+            start = end;
+        }
+        return true;
+    }
+
+    // Copy layer `key` into pix inside r only (r must lie within the band); false if not stored.
+    boolean restore(String key, int[] pix, DirtyRect r){
+        Layer l = layers.get(key);
+        if(l == null) return false;
+        if(r.isEmpty()) return true;
+        int rw = r.x1 - r.x0;
+        for(int y = r.y0; y < r.y1; y++){
+            int off = y * w + r.x0 - from, end = off + rw;
+            if(l.pixels != null){ System.arraycopy(l.pixels, off, pix, from + off, rw); continue; }
+            int[] ends = l.ends;
+            int lo = 0, hi = ends.length - 1;          // first run ending after off
+            while(lo < hi){ int mid = (lo + hi) >>> 1; if(ends[mid] > off) hi = mid; else lo = mid + 1; }
+            for(int i = lo, start = off; start < end; i++){
+                int stop = Math.min(ends[i], end);
+                Arrays.fill(pix, from + start, from + stop, l.colors[i]);
+                start = stop;
+            }
+        }
+        return true;
+    }
+
+    // Draw layer `key` into the band of pix with (r,g,b,a) blended over it; false if not stored.
+    boolean restoreBlended(String key, int[] pix, int r, int g, int b, int a){
+        Layer l = layers.get(key);
+        if(l == null) return false;
+        if(l.pixels != null){ SpanBlend.blend(pix, from, l.pixels, 0, len, r, g, b, a); return true; }
+        int[] ends = l.ends, colors = l.colors;
+        for(int i = 0, start = from; i < ends.length; i++){
+            int end = from + ends[i];
+            Arrays.fill(pix, start, end, SpanBlend.over(colors[i], r, g, b, a));
+            start = end;
+        }
+        return true;
+    }
+
+    // Drop every layer whose key starts with prefix (layers drawn with settings that changed).
+    void evict(String prefix){ layers.keySet().removeIf(k -> k.startsWith(prefix)); }
+
+    // Snapshot the band of pix as layer `key` (called right after drawing the layer).
+    void store(String key, int[] pix){
+        if(!ENABLED) return;
+        Layer l = new Layer();
+        int runs = len == 0 ? 0 : 1;
+        for(int i = from + 1; i < from + len; i++) if(pix[i] != pix[i - 1]) runs++;
+        if(runs * MIN_AVG_RUN > len){
+            l.pixels = Arrays.copyOfRange(pix, from, from + len);
+        } else {
+            l.ends = new int[runs]; l.colors = new int[runs];
+            for(int i = 1, r = 0; i <= len; i++){
+                if(i == len || pix[from + i] != pix[from + i - 1]){ l.ends[r] = i; l.colors[r] = pix[from + i - 1]; r++; }
+            }
+        }
+        layers.put(key, l);
+    }
+}
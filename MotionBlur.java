@@ -0,0 +1,180 @@
+// MotionBlur.java
+// Temporal motion blur for offline renders (OfflineRenderer --blur off|draft|good|final|N).
+// - A frame at time t is the average of N sub-frames rendered at t - shutter * k / (N * fps),
+//   k = 0..N-1: a real exposure over the shutter interval, so everything that moves is smeared
+//   along its actual path. The ghost copies the scenes draw as a fake blur are switched off
+//   (Scene.motionGhosts(false)); sub-frame times before 0 clamp to 0
+// - Sub-frames are summed into an integer accumulation buffer: red and blue of a pixel share one
+//   int (16 bits each), green has its own, so a sample costs two masked adds per pixel and up to
+//   MAX_SAMPLES samples never overflow
+// - The resolve divides by N with a fixed-point reciprocal into an opaque TYPE_INT_RGB frame; a
+//   pixel that is the same in every sample resolves to exactly that color, and N = 1 is exactly
+//   the unblurred frame
+// - Parallel path (--blur-threads P): P workers, each with its own scene (one raster thread) and
+//   its own accumulation buffer, render samples k = j, j + P, ...; the partial sums are added
+//   before the resolve, so the frame is bit-identical to the sequential path
+// - Render, accumulate and resolve time are measured per sample (summary() on stderr after a
+//   render; OfflineRenderer --blur-bench compares the presets)
+//
+// Presets: off = 1 sample, draft = 4, good = 8, final = 16. The shutter is the fraction of the
+// frame interval the exposure spans (--shutter, default 0.5: a 180 degree shutter).
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+final class MotionBlur implements OfflineRenderer.Scene {
+    static final int MAX_SAMPLES = 255;
+    static final String[] PRESETS = { "off", "draft", "good", "final" };
+    private static final int[] PRESET_SAMPLES = { 1, 4, 8, 16 };
+
+    // Sample count of a preset name or an explicit count.
+    static int samples(String preset){
+        for(int i = 0; i < PRESETS.length; i++) if(PRESETS[i].equalsIgnoreCase(preset)) return PRESET_SAMPLES[i];
+        int n;
+        try { n = Integer.parseInt(preset); }
+        catch(NumberFormatException e){ throw new IllegalArgumentException("blur must be off, draft, good, final or a sample count: " + preset); }
+        if(n < 1 || n > MAX_SAMPLES) throw new IllegalArgumentException("blur samples must be 1.." + MAX_SAMPLES + ": " + n);
+        return n;
+    }
+
+    // Per-pixel sums of the sub-frames added since clear().
+    static final class Accumulator {
+        private final int[] rb, g;      // red << 16 | blue, green << 8
+        private int[] argb;             // scratch for frames that are not int-backed
+        private int samples;
+
+        Accumulator(int pixels){ rb = new int[pixels]; g = new int[pixels]; }
+
+        int samples(){ return samples; }
+
+        void clear(){ Arrays.fill(rb, 0); Arrays.fill(g, 0); samples = 0; }
+
+        void add(BufferedImage img){
+            int n = rb.length;
+            int[] src = OfflineRenderer.Rgb24.intPixels(img);
+            if(src == null){
+                if(argb == null) argb = new int[n];
+                src = img.getRGB(0, 0, img.getWidth(), img.getHeight(), argb, 0, img.getWidth());
+            }
+            int[] rb = this.rb, g = this.g;
+            for(int i = 0; i < n; i++){ int c = src[i]; rb[i] += c & 0xFF00FF; g[i] += c & 0xFF00; }
+            samples++;
+        }
+
+        void add(Accumulator o){
+            int[] rb = this.rb, g = this.g;
+            for(int i = 0; i < rb.length; i++){ rb[i] += o.rb[i]; g[i] += o.g[i]; }
+            samples += o.samples;
+        }
+
+        // Average of the samples as opaque 0xAARRGGBB.
+        void resolve(int[] out){
+            if(samples == 0) throw new IllegalStateException("nothing accumulated");
+            long recip = Math.round((double)(1 << 24) / samples), half = 1 << 23;
+            int[] rb = this.rb, g = this.g;
+            for(int i = 0; i < rb.length; i++){
+                int s = rb[i];
+                long r = ((s >>> 16) * recip + half) >>> 24, b = ((s & 0xFFFF) * recip + half) >>> 24;
+                long gg = ((g[i] >>> 8) * recip + half) >>> 24;
+                out[i] = 0xFF000000 | (int)(r << 16 | gg << 8 | b);
+            }
+        }
+    }
+
+    // A scene with its accumulation buffer and timings; one per sub-frame thread.
+    private static final class Worker {
+        final OfflineRenderer.Scene scene;
+        final Accumulator acc;
+        int samples; long renderNanos, accumulateNanos;
+        Worker(OfflineRenderer.Scene scene){
+            this.scene = scene;
+            scene.motionGhosts(false);
+            acc = new Accumulator(scene.frameWidth() * scene.frameHeight());
+        }
+    }
+
+    private final int samples;
+    private final double shutter, fps;
+    private final Worker[] workers;
+    private final ForkJoinPool pool;  // null: sequential
+    private final BufferedImage frame;
+    private final int[] out;
+    private int frames; long resolveNanos, frameNanos;
+
+    // threads: raster threads of the scene when sub-frames are sequential (blurThreads <= 1).
+    MotionBlur(OfflineRenderer.Factory factory, int w, int h, int threads, int samples, double shutter, double fps, int blurThreads){
+        if(samples < 1 || samples > MAX_SAMPLES) throw new IllegalArgumentException("blur samples must be 1.." + MAX_SAMPLES + ": " + samples);
+        if(shutter < 0) throw new IllegalArgumentException("shutter must be >= 0");
+        this.samples = samples; this.shutter = shutter; this.fps = fps;
+        int p = Math.max(1, Math.min(blurThreads, samples));
+        workers = new Worker[p];
+        for(int j = 0; j < p; j++) workers[j] = new Worker(factory.create(w, h, p == 1 ? threads : 1));
+        pool = p == 1 ? null : new ForkJoinPool(p);
+        frame = new BufferedImage(workers[0].scene.frameWidth(), workers[0].scene.frameHeight(), BufferedImage.TYPE_INT_RGB);
+        out = ((DataBufferInt)frame.getRaster().getDataBuffer()).getData();
+    }
+
+    int samples(){ return samples; }
+
+    @Override public int frameWidth(){ return frame.getWidth(); }
+    @Override public int frameHeight(){ return frame.getHeight(); }
+    @Override public double duration(){ return workers[0].scene.duration(); }
+
+    @Override public BufferedImage renderFrame(double t){
+        long f0 = System.nanoTime();
+        if(pool == null) expose(workers[0], t, 0, 1);
+        else {
+            List<Callable<Void>> jobs = new ArrayList<>();
+            for(int j = 0; j < workers.length; j++){
+                Worker wk = workers[j]; int first = j;
+                jobs.add(() -> { expose(wk, t, first, workers.length); return null; });
+            }
+            for(Future<Void> f : pool.invokeAll(jobs)){
+                try { f.get(); }
+                catch(InterruptedException e){ Thread.currentThread().interrupt(); throw new IllegalStateException(e); }
+                catch(ExecutionException e){
+                    if(e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
+        long r0 = System.nanoTime();
+        Accumulator acc = workers[0].acc;
+        for(int j = 1; j < workers.length; j++) acc.add(workers[j].acc);
+        acc.resolve(out);
+        long r1 = System.nanoTime();
+        resolveNanos += r1 - r0; frameNanos += r1 - f0; frames++;
+        return frame;
+    }
+
+    // Render samples first, first + step, ... of the exposure ending at t into wk's buffer.
+    private void expose(Worker wk, double t, int first, int step){
+        wk.acc.clear();
+        for(int k = first; k < samples; k += step){
+            double ts = Math.max(0, t - shutter * k / (samples * fps));
+            long s0 = System.nanoTime();
+            BufferedImage img = wk.scene.renderFrame(ts);
+            long s1 = System.nanoTime();
+            wk.acc.add(img);
+            wk.accumulateNanos += System.nanoTime() - s1; wk.renderNanos += s1 - s0; wk.samples++;
+        }
+    }
+
+    // Per-sample cost so far: render and accumulate are CPU time summed over the workers.
+    String summary(){
+        int n = 0; long render = 0, accumulate = 0;
+        for(Worker wk : workers){ n += wk.samples; render += wk.renderNanos; accumulate += wk.accumulateNanos; }
+        return String.format(Locale.ROOT, "blur: %d frames x %d samples (shutter %.2f, %d thread%s): %.3f ms/sample render, %.3f ms/sample accumulate, %.3f ms/frame resolve, %.3f ms/frame%n",
+                frames, samples, shutter, workers.length, workers.length == 1 ? "" : "s",
+                n == 0 ? 0.0 : render / 1e6 / n, n == 0 ? 0.0 : accumulate / 1e6 / n,
+                frames == 0 ? 0.0 : resolveNanos / 1e6 / frames, frames == 0 ? 0.0 : frameNanos / 1e6 / frames);
+    }
+}
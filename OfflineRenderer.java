@@ -0,0 +1,275 @@
+// OfflineRenderer.java
+// Headless offline renderer shared by all the animations.
+// - Drives a scene's render path at a fixed timestep (no Swing Timer, no wall clock)
+// - Frame i of the animation is always rendered at t = i / fps, so a range started with
+//   --start gives the same frames (bit for bit) as the matching part of a full render
+// - Renders as fast as the CPU allows, no window required (java.awt.headless=true)
+// - Writes frames as a PNG or PPM image sequence, or as one raw rgb24 video stream
+// - Reports offline throughput (frames per second) on stderr
+//
+// Usage (works with every animation entry point):
+//   java test3 --headless [--out DIR|FILE|-] [--format png|ppm|raw] [--fps 60] [--start 0] [--end 8]
+//                         [--size 1920x1080] [--profile summary.json|frames.csv]
+//
+// Parallel render farm (frames on all cores, one canvas per worker; see RenderFarm):
+//   java test3 --headless --workers 8 [--chunk 8] [--resume] --size 3840x2160 --format raw --out 4k.raw
+//
+// Temporal motion blur (N sub-frames per frame in an accumulation buffer; see MotionBlur):
+//   java test3 --headless --blur off|draft|good|final|N [--shutter 0.5] [--blur-threads 4] --out frames
+//   java test3 --headless --blur-bench [--blur-threads 4] [--frames 60]   (cost per preset)
+//
+// Resolution scaling benchmark (frame time vs pixel count, nothing is written):
+//   java test3 --headless --scale-bench [--sizes 600x600,1920x1080,3840x2160] [--frames 60]
+//
+// Raw output can be piped straight into an encoder, e.g.:
+//   java test3 --headless --format raw --out - | ffmpeg -f rawvideo -pix_fmt rgb24 -s 600x600 -r 60 -i - out.mp4
+
+import java.awt.image.*;
+import java.io.*;
+import java.util.Locale;
+import javax.imageio.ImageIO;
+
+public class OfflineRenderer {
+
+    // A scene that can render any point in time into an image without being on screen.
+    interface Scene {
+        int frameWidth();
+        int frameHeight();
+        double duration();                   // length of one loop in seconds
+        BufferedImage renderFrame(double t); // render time t (seconds) and return the finished frame
+        default FrameStats stats(){ return null; } // per-frame instrumentation, if the scene has any
+        default void motionGhosts(boolean on){}     // fake motion blur (offset copies); MotionBlur turns it off
+    }
+
+    // Creates a scene for a device size that rasterizes on `threads` threads; scenes with a fixed
+    // canvas or a single-threaded renderer may ignore them.
+    interface Factory { Scene create(int w, int h, int threads); }
+
+    private final Factory factory;
+    private Scene scene;
+    private String format = "png";
+    private String out = "frames";
+    private double fps = 60.0;
+    private double start = 0.0;
+    private double end = -1; // < 0 means one full loop
+    private int width = 600, height = 600;
+    private boolean scaleBench = false;
+    private String sizes = "600x600,1280x720,1920x1080,3840x2160";
+    private int benchFrames = 60;
+    private String profile; // FrameStats export path (.json summary or .csv per frame)
+    private int workers;    // > 0: render frames in parallel on a RenderFarm
+    private int chunk;      // frames per farm job, 0 = automatic
+    private boolean resume; // farm: keep frames a previous (interrupted) run already finished
+    private int blurSamples = 1;     // > 1: temporal motion blur with this many sub-frames
+    private double shutter = 0.5;    // exposure as a fraction of the frame interval
+    private int blurThreads = 1;     // sub-frames rendered in parallel
+    private boolean blurBench = false;
+
+    private final Rgb24 rgb24 = new Rgb24();
+
+    OfflineRenderer(Factory factory){ this.factory = factory; }
+
+    static boolean isHeadless(String[] args){
+        for(String a : args) if(a.equals("--headless")) return true;
+        return false;
+    }
+
+    // Entry point used by each animation's main(). The scene is created after
+    // java.awt.headless is set so no display is ever touched.
+    static void run(String[] args, Factory factory){
+        System.setProperty("java.awt.headless", "true");
+        OfflineRenderer r = new OfflineRenderer(factory);
+        r.parse(args);
+        try {
+            if(r.scaleBench){ r.scaleBench(); return; }
+            if(r.blurBench){ r.blurBench(); return; }
+            if(r.workers > 0){
+                new RenderFarm(r.blurred(factory, 1), r.width, r.height, r.fps, r.start, r.end, r.format, r.out, r.workers, r.chunk, r.resume).run();
+                return;
+            }
+            r.scene = r.blurred(factory, r.blurThreads).create(r.width, r.height, BandRenderer.defaultThreads());
+            r.renderAll();
+        } catch(IOException e){
+            System.err.println("offline render failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    void parse(String[] args){
+        for(int i = 0; i < args.length; i++){
+            String a = args[i];
+            if(a.equals("--headless")) continue;
+            if(a.equals("--scale-bench")){ scaleBench = true; continue; }
+            if(a.equals("--resume")){ resume = true; continue; }
+            if(a.equals("--blur-bench")){ blurBench = true; continue; }
+            if(i + 1 >= args.length) throw new IllegalArgumentException("missing value for " + a);
+            String v = args[++i];
+            switch(a){
+                case "--out":    out = v; break;
+                case "--format": format = v.toLowerCase(Locale.ROOT); break;
+                case "--fps":    fps = Double.parseDouble(v); break;
+                case "--start":  start = Double.parseDouble(v); break;
+                case "--end":    end = Double.parseDouble(v); break;
+                case "--size":   { int[] wh = parseSize(v); width = wh[0]; height = wh[1]; break; }
+                case "--sizes":  sizes = v; break;
+                case "--frames": benchFrames = Integer.parseInt(v); break;
+                case "--profile": profile = v; break;
+                case "--workers": workers = Integer.parseInt(v); break;
+                case "--chunk":  chunk = Integer.parseInt(v); break;
+                case "--blur":   blurSamples = MotionBlur.samples(v); break;
+                case "--shutter": shutter = Double.parseDouble(v); break;
+                case "--blur-threads": blurThreads = Integer.parseInt(v); break;
+                default: throw new IllegalArgumentException("unknown option " + a);
+            }
+        }
+        if(!format.equals("png") && !format.equals("ppm") && !format.equals("raw"))
+            throw new IllegalArgumentException("format must be png, ppm or raw");
+        if(fps <= 0) throw new IllegalArgumentException("fps must be > 0");
+        if(workers < 0 || chunk < 0) throw new IllegalArgumentException("workers and chunk must be >= 0");
+        if(workers > 0 && out.equals("-")) throw new IllegalArgumentException("--workers writes frames out of order and needs a file or directory --out");
+        if(workers > 0 && profile != null) throw new IllegalArgumentException("--profile is not supported with --workers");
+        if(workers == 0 && resume) throw new IllegalArgumentException("--resume needs --workers");
+        if(shutter < 0 || blurThreads < 1) throw new IllegalArgumentException("shutter must be >= 0 and blur-threads >= 1");
+        if(workers > 0 && blurThreads > 1) throw new IllegalArgumentException("--blur-threads is not supported with --workers (frames are already parallel)");
+    }
+
+    private static int[] parseSize(String v){
+        int x = v.indexOf('x');
+        if(x < 0) throw new IllegalArgumentException("size must look like 1920x1080: " + v);
+        int w = Integer.parseInt(v.substring(0, x).trim()), h = Integer.parseInt(v.substring(x + 1).trim());
+        if(w <= 0 || h <= 0) throw new IllegalArgumentException("size must be positive: " + v);
+        return new int[]{ w, h };
+    }
+
+    // Render benchFrames frames spread over one loop at each size and report how frame time
+    // scales with pixel count. A short warm-up per size lets the JIT settle first.
+    void scaleBench(){
+        System.err.printf(Locale.ROOT, "%-11s %9s %11s %9s %8s%n", "size", "Mpix", "ms/frame", "ns/pixel", "x 1st");
+        double first = -1;
+        for(String sz : sizes.split(",")){
+            int[] wh = parseSize(sz);
+            Scene sc = factory.create(wh[0], wh[1], BandRenderer.defaultThreads());
+            double len = sc.duration();
+            for(int k = 0; k < Math.max(5, benchFrames / 4); k++) sc.renderFrame(len * k / benchFrames);
+            long t0 = System.nanoTime();
+            for(int k = 0; k < benchFrames; k++) sc.renderFrame(len * k / benchFrames);
+            double ms = (System.nanoTime() - t0) / 1e6 / benchFrames;
+            long px = (long)sc.frameWidth() * sc.frameHeight();
+            if(first < 0) first = ms;
+            System.err.printf(Locale.ROOT, "%-11s %9.2f %11.3f %9.2f %8.2f%n",
+                    sc.frameWidth() + "x" + sc.frameHeight(), px / 1e6, ms, ms * 1e6 / px, ms / first);
+        }
+    }
+
+    // Scenes of `factory`, motion blurred if --blur asked for more than one sample.
+    private Factory blurred(Factory factory, int subThreads){
+        if(blurSamples == 1) return factory;
+        return (w, h, threads) -> new MotionBlur(factory, w, h, threads, blurSamples, shutter, fps, subThreads);
+    }
+
+    // Render benchFrames frames spread over one loop with each blur preset and report the cost
+    // per frame and per sample, relative to no blur.
+    void blurBench(){
+        System.err.printf(Locale.ROOT, "%-7s %8s %11s %11s %8s%n", "preset", "samples", "ms/frame", "ms/sample", "x off");
+        double off = -1;
+        for(String preset : MotionBlur.PRESETS){
+            int n = MotionBlur.samples(preset);
+            MotionBlur sc = new MotionBlur(factory, width, height, BandRenderer.defaultThreads(), n, shutter, fps, blurThreads);
+            double len = sc.duration();
+            for(int k = 0; k < Math.max(5, benchFrames / 4); k++) sc.renderFrame(len * k / benchFrames);
+            long t0 = System.nanoTime();
+            for(int k = 0; k < benchFrames; k++) sc.renderFrame(len * k / benchFrames);
+            double ms = (System.nanoTime() - t0) / 1e6 / benchFrames;
+            if(off < 0) off = ms;
+            System.err.printf(Locale.ROOT, "%-7s %8d %11.3f %11.3f %8.2f%n", preset, n, ms, ms / n, ms / off);
+        }
+    }
+
+    void renderAll() throws IOException {
+        double stop = end < 0 ? scene.duration() : end;
+        long first = Math.round(start * fps);  // absolute frame index of the first frame
+        int frames = (int)Math.max(0, Math.round(stop * fps) - first);
+        int w = scene.frameWidth(), h = scene.frameHeight();
+
+        OutputStream stream = null;
+        if(format.equals("raw")){
+            stream = out.equals("-") ? new BufferedOutputStream(System.out, 1 << 20)
+                                     : new BufferedOutputStream(new FileOutputStream(out), 1 << 20);
+        } else {
+            File dir = new File(out);
+            if(!dir.isDirectory() && !dir.mkdirs()) throw new IOException("cannot create " + dir);
+        }
+
+        long renderNanos = 0;
+        long begin = System.nanoTime();
+        try {
+            for(int k = 0; k < frames; k++){
+                double t = (first + k) / fps;
+                long r0 = System.nanoTime();
+                BufferedImage img = scene.renderFrame(t);
+                renderNanos += System.nanoTime() - r0;
+                if(stream != null) stream.write(rgb24.pack(img), 0, w * h * 3);
+                else writeImage(img, new File(out, String.format("frame_%05d.%s", first + k, format)), format, rgb24);
+            }
+        } finally {
+            if(stream != null) stream.close();
+        }
+        long total = System.nanoTime() - begin;
+
+        // stats go to stderr so a raw stream on stdout stays clean
+        System.err.printf(Locale.ROOT, "rendered %d frames (%dx%d, %s) in %.2f s: %.1f fps total, %.1f fps render-only, %.3f ms/frame%n",
+                frames, w, h, format, total / 1e9,
+                frames / Math.max(1e-9, total / 1e9),
+                frames / Math.max(1e-9, renderNanos / 1e9),
+                frames == 0 ? 0.0 : renderNanos / 1e6 / frames);
+        if(scene instanceof MotionBlur) System.err.print(((MotionBlur)scene).summary());
+        FrameStats stats = scene.stats();
+        if(stats != null){
+            System.err.print(stats.summary());
+            if(profile != null) stats.export(profile);
+        }
+    }
+
+    static void writeImage(BufferedImage img, File f, String format, Rgb24 rgb24) throws IOException {
+        if(format.equals("png")){
+            ImageIO.write(img, "png", f);
+            return;
+        }
+        int w = img.getWidth(), h = img.getHeight();
+        try(OutputStream os = new BufferedOutputStream(new FileOutputStream(f), 1 << 16)){
+            os.write(("P6\n" + w + " " + h + "\n255\n").getBytes("US-ASCII"));
+            os.write(rgb24.pack(img), 0, w * h * 3);
+        }
+    }
+
+    // Packs frames as rgb24; alpha is dropped (every scene clears to an opaque color).
+    // One per rendering thread: the scratch arrays are reused from frame to frame.
+    static final class Rgb24 {
+        private byte[] rgb;   // reusable rgb24 scratch row-major frame
+        private int[] argb;   // reusable pixel scratch for images that are not int-backed
+
+        // The 0x??RRGGBB pixels of an INT_RGB / INT_ARGB / INT_ARGB_PRE image, or null for other
+        // layouts. Opaque pixels read the same in all three.
+        static int[] intPixels(BufferedImage img){
+            int t = img.getType();
+            if(!(img.getRaster().getDataBuffer() instanceof DataBufferInt)) return null;
+            if(t != BufferedImage.TYPE_INT_RGB && t != BufferedImage.TYPE_INT_ARGB && t != BufferedImage.TYPE_INT_ARGB_PRE) return null;
+            return ((DataBufferInt)img.getRaster().getDataBuffer()).getData();
+        }
+
+        byte[] pack(BufferedImage img){
+            int w = img.getWidth(), h = img.getHeight(), n = w * h;
+            if(rgb == null || rgb.length < n * 3) rgb = new byte[n * 3];
+            int[] src = intPixels(img);
+            if(src == null){
+                if(argb == null || argb.length < n) argb = new int[n];
+                src = img.getRGB(0, 0, w, h, argb, 0, w);
+            }
+            for(int i = 0, j = 0; i < n; i++, j += 3){
+                int c = src[i];
+                rgb[j] = (byte)(c >>> 16); rgb[j + 1] = (byte)(c >>> 8); rgb[j + 2] = (byte)c;
+            }
+            return rgb;
+        }
+    }
+}
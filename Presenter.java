@@ -0,0 +1,105 @@
+// Presenter.java
+// Puts finished frames on screen for the Swing panels (PixelPanel, AnimPanel, RebornPanel).
+// - Accelerated path (default on a display): every frame goes through a VolatileImage back
+//   surface owned by the panel. Software-rasterized frames upload only the repaint clip into it
+//   (the dirty rectangle), Java2D scenes draw straight into it, so Java2D can render with the
+//   pipeline's hardware loops; the screen then gets a VRAM-to-VRAM copy
+// - Contents lost: the surface is validated before each frame. IMAGE_INCOMPATIBLE (display mode
+//   or screen change) recreates it, IMAGE_RESTORED means its pixels are gone, and the frame is
+//   drawn in full instead of just the clip; if the surface is lost again while drawing, the frame
+//   is drawn again (contentsLost() loop)
+// - Software path: headless, -Dpresent=software, or no VolatileImage available (component not on
+//   screen yet): the frame is drawn straight to the component's Graphics as before
+// - compatibleImage(): static Java2D content (cached layers, sprites) is created in the screen's
+//   format so Java2D keeps it as a managed image (cached in VRAM after the first blits). Such
+//   images must never have their raster grabbed, which would unmanage them; headless, they are
+//   plain BufferedImages of the given fallback type
+// - Measures every present (ns, returned to the caller) and counts surfaces lost / recreated;
+//   -Dpresent.stats=true prints a summary on exit. Compare paths with -Dpresent=software|volatile
+//
+// Switches: -Dpresent=volatile|software (default volatile)   -Dpresent.stats=true
+
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.Locale;
+
+final class Presenter {
+    // Draws the frame into g: the pixels inside clip, or the whole frame when clip is null.
+    interface Painter { void paint(Graphics2D g, Rectangle clip); }
+
+    private static final boolean ACCELERATE = !GraphicsEnvironment.isHeadless()
+            && !"software".equalsIgnoreCase(System.getProperty("present", "volatile"));
+
+    private final Component c;
+    private final String name;
+    private VolatileImage back;
+    private long frames, nanos, lost, created; // EDT only; read by the exit summary
+
+    Presenter(Component c, String name){
+        this.c = c; this.name = name;
+        if(Boolean.getBoolean("present.stats")) Runtime.getRuntime().addShutdownHook(new Thread(() -> { if(frames > 0) System.err.print(summary()); }));
+    }
+
+    // EDT (paintComponent): present one frame; returns the time it took in ns.
+    long present(Graphics g, Painter p){
+        long t0 = System.nanoTime();
+        Rectangle clip = g.getClipBounds();
+        if(!ACCELERATE || !draw(g, p, clip)) p.paint((Graphics2D)g, clip);
+        long took = System.nanoTime() - t0;
+        frames++; nanos += took;
+        return took;
+    }
+
+    // Accelerated path; false if no back surface can be made (the caller draws in software).
+    private boolean draw(Graphics g, Painter p, Rectangle clip){
+        int w = c.getWidth(), h = c.getHeight();
+        GraphicsConfiguration gc = c.getGraphicsConfiguration();
+        if(gc == null || w <= 0 || h <= 0) return false;
+        do {
+            boolean full = false;
+            if(back == null || back.getWidth() != w || back.getHeight() != h){
+                if(back != null) back.flush();
+                back = gc.createCompatibleVolatileImage(w, h, Transparency.OPAQUE);
+                if(back == null) return false;
+                created++; full = true;
+            }
+            int v = back.validate(gc);
+            if(v == VolatileImage.IMAGE_INCOMPATIBLE){
+                back.flush();
+                back = gc.createCompatibleVolatileImage(w, h, Transparency.OPAQUE);
+                if(back == null) return false;
+                created++; full = true;
+            } else if(v == VolatileImage.IMAGE_RESTORED){
+                lost++; full = true;
+            }
+            Graphics2D vg = back.createGraphics();
+            try {
+                if(!full && clip != null) vg.setClip(clip);
+                p.paint(vg, full ? null : clip);
+            } finally {
+                vg.dispose();
+            }
+            g.drawImage(back, 0, 0, null);
+        } while(back.contentsLost());
+        return true;
+    }
+
+    String summary(){
+        return String.format(Locale.ROOT, "present %s (%s): %d frames, %.3f ms/frame, %d surfaces created, %d contents lost%n",
+                name, ACCELERATE ? "volatile" : "software", frames, frames == 0 ? 0.0 : nanos / 1e6 / frames, created, lost);
+    }
+
+    // An image for static Java2D content in the screen's format (a managed image), or a plain
+    // BufferedImage of fallbackType when headless or before c is on screen.
+    static BufferedImage compatibleImage(Component c, int w, int h, int transparency, int fallbackType){
+        GraphicsConfiguration gc = GraphicsEnvironment.isHeadless() ? null : c.getGraphicsConfiguration();
+        return gc != null ? gc.createCompatibleImage(w, h, transparency) : new BufferedImage(w, h, fallbackType);
+    }
+}
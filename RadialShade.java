@@ -0,0 +1,100 @@
+// RadialShade.java
+// Elliptical radial gradients from lookup tables (test3 slime body; any oval fill with a radial
+// ramp, such as eyes or droplets, can be built the same way).
+// - A shade is a sum of terms. Each term is a color ramp over the normalized elliptical distance
+//   d from its own center: center and radii are fractions of the filled ellipse's radii, so one
+//   shade fits every size the shape pulses through
+// - Each ramp is sampled once into a LUT indexed by d^2 (LUT_SIZE buckets over 0..maxD^2), so the
+//   per-pixel sqrt / exp of the original shading is gone
+// - Per pixel, d^2 of every term is stepped along the row in 24.40 fixed point with two integer
+//   adds (forward differences of a quadratic); only the row start is computed in floating point.
+//   Two-term shades (ramp + light, like the slime) run a row loop with that state in locals
+// - Term colors add per channel (clamped to 255) and are blended over the canvas at a constant
+//   alpha with the exact pblend arithmetic (SpanBlend.over)
+// - Row stepping state is scratch of the shade: each band engine owns one, like EllipseSpans
+
+import java.util.Arrays;
+
+final class RadialShade {
+    // Color contribution 0xRRGGBB of a term at normalized distance d (0 = its center).
+    interface Ramp { int rgb(double d); }
+
+    static final int LUT_BITS = 14, LUT_SIZE = 1 << LUT_BITS;
+    private static final int Q = 40;                       // fixed-point bits of d^2 / maxD^2
+    private static final long ONE = 1L << Q;
+
+    private double[] fx = new double[0], fy = fx, sx = fx, sy = fx, range = fx;
+    private int[][] luts = new int[0][];
+    private long[] q, dq, ddq;                            // per term: d^2, its row step, step of the step
+    private double[] kx, ky, ox, oy;                      // per term, for the current fill
+
+    static int rgb(int r, int g, int b){ return (r << 16) | (g << 8) | b; }
+
+    // Add a term centered at (cx + fx*rx, cy + fy*ry) with radii (sx*rx, sy*ry); distances beyond
+    // maxD use the ramp's value at maxD.
+    RadialShade term(double fx, double fy, double sx, double sy, double maxD, Ramp ramp){
+        if(sx <= 0 || sy <= 0 || maxD <= 0) throw new IllegalArgumentException("term radii and maxD must be > 0");
+        int n = luts.length;
+        this.fx = grow(this.fx, fx); this.fy = grow(this.fy, fy); this.sx = grow(this.sx, sx); this.sy = grow(this.sy, sy);
+        range = grow(range, maxD * maxD);
+        int[] lut = new int[LUT_SIZE];
+        for(int i = 0; i < LUT_SIZE; i++) lut[i] = ramp.rgb(maxD * Math.sqrt((i + 0.5) / LUT_SIZE)); // bucket centers
+        luts = Arrays.copyOf(luts, n + 1); luts[n] = lut;
+        q = new long[n + 1]; dq = new long[n + 1]; ddq = new long[n + 1];
+        kx = new double[n + 1]; ky = new double[n + 1]; ox = new double[n + 1]; oy = new double[n + 1];
+        return this;
+    }
+
+    private static double[] grow(double[] a, double v){ a = Arrays.copyOf(a, a.length + 1); a[a.length - 1] = v; return a; }
+
+    // Fill the ellipse (cx, cy, rx, ry) within rows [y0, y1) of pix (row length w), blended at alpha.
+    // Row extents are those of the original shading: |x| <= floor(rx * sqrt(1 - y^2/ry^2)).
+    void fill(int[] pix, int w, int y0, int y1, int cx, int cy, int rx, int ry, int alpha){
+        if(rx <= 0 || ry <= 0 || luts.length == 0) return;
+        int terms = luts.length;
+        long[] q = this.q, dq = this.dq, ddq = this.ddq;
+        double[] kx = this.kx, ky = this.ky, ox = this.ox, oy = this.oy;
+        for(int t = 0; t < terms; t++){
+            double ax = sx[t] * rx, ay = sy[t] * ry;
+            kx[t] = ONE / (ax * ax * range[t]); ky[t] = ONE / (ay * ay * range[t]);
+            ox[t] = fx[t] * rx; oy[t] = fy[t] * ry;
+            ddq[t] = Math.round(2 * kx[t]);
+        }
+        for(int yy = Math.max(-ry, y0 - cy); yy <= Math.min(ry, y1 - 1 - cy); yy++){
+            double yTerm = (yy * yy) / (double)(ry * ry); if(yTerm > 1) continue;
+            int xx = (int)Math.floor(rx * Math.sqrt(1 - yTerm));
+            int xa = Math.max(-xx, -cx), xb = Math.min(xx, w - 1 - cx);
+            if(xa > xb) continue;
+            for(int t = 0; t < terms; t++){
+                double u = xa - ox[t], v = yy - oy[t];
+                q[t] = Math.round(u * u * kx[t] + v * v * ky[t]);
+                dq[t] = Math.round((2 * u + 1) * kx[t]);
+            }
+            if(terms == 2){ row2(pix, (cy + yy) * w + cx + xa, xb - xa + 1, alpha); continue; }
+            for(int x = xa, i = (cy + yy) * w + cx + xa; x <= xb; x++, i++){
+                int r = 0, g = 0, b = 0;
+                for(int t = 0; t < terms; t++){
+                    long d2 = q[t];
+                    int k = d2 <= 0 ? 0 : d2 >= ONE ? LUT_SIZE - 1 : (int)(d2 >>> (Q - LUT_BITS));
+                    int c = luts[t][k];
+                    r += c >>> 16; g += (c >>> 8) & 255; b += c & 255;
+                    q[t] = d2 + dq[t]; dq[t] += ddq[t];
+                }
+                pix[i] = SpanBlend.over(pix[i], Math.min(r, 255), Math.min(g, 255), Math.min(b, 255), alpha);
+            }
+        }
+    }
+
+    // The row loop of fill() for two terms (a base ramp and a light), with the stepping state in locals.
+    private void row2(int[] pix, int i, int n, int alpha){
+        int[] la = luts[0], lb = luts[1];
+        long qa = q[0], dqa = dq[0], ddqa = ddq[0], qb = q[1], dqb = dq[1], ddqb = ddq[1];
+        for(int end = i + n; i < end; i++){
+            int ca = la[qa <= 0 ? 0 : qa >= ONE ? LUT_SIZE - 1 : (int)(qa >>> (Q - LUT_BITS))];
+            int cb = lb[qb <= 0 ? 0 : qb >= ONE ? LUT_SIZE - 1 : (int)(qb >>> (Q - LUT_BITS))];
+            int r = (ca >>> 16) + (cb >>> 16), g = ((ca >>> 8) & 255) + ((cb >>> 8) & 255), b = (ca & 255) + (cb & 255);
+            pix[i] = SpanBlend.over(pix[i], Math.min(r, 255), Math.min(g, 255), Math.min(b, 255), alpha);
+            qa += dqa; dqa += ddqa; qb += dqb; dqb += ddqb;
+        }
+    }
+}
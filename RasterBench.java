@@ -0,0 +1,277 @@
+// RasterBench.java
+// Benchmarks for every rasterization primitive and full-frame scene render.
+// - Primitives of PixelEngine (test3: pblend, line, thickLine, circle, fillCircle, ellipse,
+//   fillEllipse, fillPolygon, a sub-pixel non-zero star, qBezier) and AnimEngine (test2: line, circle, ellipse, qBezier)
+// - Ellipses whose radius pulses over a few sizes (EllipseSpans hits), for test3 and the Java2D
+//   path of MidpointEllipse (Animetion)
+// - The shaded slime body (RadialShade LUT gradient + rim) of test3
+// - Animetion's translucent midpoint circles (particles, eye highlights) on an antialiased
+//   Graphics2D: one drawLine per span vs. one cached span shape per circle
+// - Scene graph scaling: 2000 objects spread over four canvas widths, scrolled and drawn through
+//   SceneGraph (bounds culling) vs. the same primitives called directly
+// - Frame buffer pixel formats (FrameRing: INT_RGB, INT_ARGB_PRE, INT_ARGB): cost of presenting a
+//   frame (drawImage onto an INT_RGB surface, the usual Swing back buffer) and of a translucent
+//   Java2D fill and a software span blend over the whole frame, per format
+// - Full-frame render(t) for every scene of PixelPanel and AnimPanel (their headless
+//   PixelRenderer / AnimRenderer), and the Java2D
+//   paint path of RebornPanel
+// - Parameterized by canvas size and primitive size (radius / length in device pixels)
+// - Not JMH: there is no build file to host a JMH module, so this is a hand-rolled timing loop in
+//   JMH's shape: warm-up iterations, then timed iterations of fixed length; reports mean ns/op
+//   with the standard deviation across iterations. No forks or blackhole: one JVM, results are
+//   consumed through a volatile sink
+// - CSV export and comparison against a previous CSV to catch regressions (exit code 1)
+// - Rasterizers and renderers are auxiliary classes of test3.java, test2.java and Animetion.java,
+//   so this file never names them: each program's public class hands out its renderer factory
+//   (RENDERER), a canvas and the primitive operations (benchPrimitives)
+//
+// Usage:
+//   ./rasterbench.sh [options]    or
+//   javac -encoding UTF-8 -d out *.java && java -cp out RasterBench [--filter REGEX]
+//        [--sizes 600x600,1920x1080,3840x2160] [--prims 16,128,512] [--warmup 2] [--iterations 5]
+//        [--time-ms 100] [--threads 1] [--csv out.csv] [--compare baseline.csv] [--tolerance 0.10]
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.Pattern;
+
+public class RasterBench {
+
+    // One benchmark operation; i counts invocations so results can be consumed.
+    interface Op { void run(int i); }
+
+    private static volatile int sink; // keeps the JIT from discarding the rendered pixels
+
+    // For operations built outside this file: keep a result alive.
+    static void consume(int v){ sink += v; }
+
+    private Pattern filter = Pattern.compile(".*");
+    private String sizes = "600x600,1920x1080,3840x2160";
+    private String prims = "16,128,512";
+    private int warmup = 2, iterations = 5, timeMs = 100, threads = 1;
+    private String csv, compare;
+    private double tolerance = 0.10;
+
+    private final List<String[]> results = new ArrayList<>(); // name, canvas, size, mean, stdev
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        RasterBench b = new RasterBench();
+        b.parse(args);
+        b.runAll();
+        if(b.csv != null) b.writeCsv();
+        if(b.compare != null && b.regressions() > 0) System.exit(1);
+    }
+
+    void parse(String[] args){
+        for(int i = 0; i < args.length; i++){
+            String a = args[i];
+            if(i + 1 >= args.length) throw new IllegalArgumentException("missing value for " + a);
+            String v = args[++i];
+            switch(a){
+                case "--filter":     filter = Pattern.compile(v); break;
+                case "--sizes":      sizes = v; break;
+                case "--prims":      prims = v; break;
+                case "--warmup":     warmup = Integer.parseInt(v); break;
+                case "--iterations": iterations = Integer.parseInt(v); break;
+                case "--time-ms":    timeMs = Integer.parseInt(v); break;
+                case "--threads":    threads = Integer.parseInt(v); break;
+                case "--csv":        csv = v; break;
+                case "--compare":    compare = v; break;
+                case "--tolerance":  tolerance = Double.parseDouble(v); break;
+                default: throw new IllegalArgumentException("unknown option " + a);
+            }
+        }
+        if(iterations < 2) throw new IllegalArgumentException("need at least 2 iterations");
+    }
+
+    void runAll(){
+        System.out.printf(Locale.ROOT, "%-26s %11s %6s %14s %12s%n", "benchmark", "canvas", "size", "ns/op", "stdev");
+        for(String sz : sizes.split(",")){
+            int x = sz.indexOf('x');
+            int w = Integer.parseInt(sz.substring(0, x).trim()), h = Integer.parseInt(sz.substring(x + 1).trim());
+            for(String p : prims.split(",")) primitives(w, h, Integer.parseInt(p.trim()));
+            graph(w, h);
+            formats(w, h);
+            scenes(w, h);
+        }
+    }
+
+    // ---------------- primitives ----------------
+    private void primitives(int w, int h, int size){
+        int[] pix = new int[w * h];
+        Arrays.fill(pix, 0xFF202830);
+        String canvas = w + "x" + h;
+        // each program builds the operations over its own (auxiliary) rasterizer classes
+        Map<String, Op> ops = new LinkedHashMap<>();
+        test3.benchPrimitives(ops, pix, w, h, size);
+        test2.benchPrimitives(ops, pix, w, h, size);
+        Graphics2D g2 = null; // translucent circles on an antialiased Graphics2D, only when selected
+        if(filter.matcher("Animetion.fillCircle").find()){
+            g2 = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB).createGraphics();
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setColor(new Color(255, 255, 255, 200));
+        }
+        Animetion.benchPrimitives(ops, w, h, size, g2);
+        for(Map.Entry<String, Op> e : ops.entrySet()) bench(e.getKey(), canvas, size, pix, e.getValue());
+        if(g2 != null) g2.dispose();
+    }
+
+    // ---------------- scene graph ----------------
+    private static final int GRAPH_OBJECTS = 2000;
+
+    private void graph(int w, int h){
+        if(!filter.matcher("SceneGraph.cull").find() && !filter.matcher("SceneGraph.immediate").find()) return;
+        int[] pix = new int[w * h];
+        Arrays.fill(pix, 0xFF202830);
+        SceneGraph.Canvas p = test3.benchCanvas(pix, w, h);
+        String canvas = w + "x" + h;
+        Random rnd = new Random(1);
+        int[] ox = new int[GRAPH_OBJECTS], oy = new int[GRAPH_OBJECTS];
+        SceneGraph g = new SceneGraph(1, 0, 0);
+        SceneGraph.Group[] objs = new SceneGraph.Group[GRAPH_OBJECTS];
+        for(int k = 0; k < GRAPH_OBJECTS; k++){ // a small cart: body quad + wheel, somewhere in a 4w x h world
+            ox[k] = rnd.nextInt(4 * w); oy[k] = rnd.nextInt(h);
+            objs[k] = g.root().add(new SceneGraph.Group());
+            objs[k].add(SceneGraph.Poly.quad(0, -12, 36, 0)).color(70, 130, 180);
+            objs[k].add(new SceneGraph.Disc(8, 0, 5)).color(40, 40, 40);
+        }
+        int[] qx = new int[4], qy = new int[4];
+        bench("SceneGraph.cull", canvas, GRAPH_OBJECTS, pix, i -> {
+            int scroll = (i * 7) % (3 * w);
+            for(int k = 0; k < GRAPH_OBJECTS; k++) objs[k].at(ox[k] - scroll, oy[k]);
+            g.draw(p);
+        });
+        bench("SceneGraph.immediate", canvas, GRAPH_OBJECTS, pix, i -> {
+            int scroll = (i * 7) % (3 * w);
+            for(int k = 0; k < GRAPH_OBJECTS; k++){
+                int x = ox[k] - scroll, y = oy[k];
+                qx[0] = x; qx[1] = x + 36; qx[2] = x + 36; qx[3] = x; qy[0] = y - 12; qy[1] = y - 12; qy[2] = y; qy[3] = y;
+                p.fillPolygon(qx, qy, 4, 70, 130, 180, 255);
+                p.fillCircle(x + 8, y, 5, 40, 40, 40, 255);
+            }
+        });
+    }
+
+    // ---------------- pixel formats ----------------
+    private void formats(int w, int h){
+        String canvas = w + "x" + h;
+        BufferedImage screen = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB); // stand-in for the Swing back buffer
+        Graphics2D sg = screen.createGraphics();
+        Color veil = new Color(180, 250, 200, 100);
+        for(int type : FrameRing.FORMATS){
+            String f = FrameRing.formatName(type);
+            if(!filter.matcher("format.blit." + f).find() && !filter.matcher("format.fill." + f).find()
+                    && !filter.matcher("format.spanBlend." + f).find()) continue;
+            BufferedImage img = new BufferedImage(w, h, type);
+            int[] pix = OfflineRenderer.Rgb24.intPixels(img);
+            Arrays.fill(pix, 0xFF202830);
+            Graphics2D g = img.createGraphics();
+            bench("format.blit." + f, canvas, 0, null, i -> sg.drawImage(img, 0, 0, null));
+            bench("format.fill." + f, canvas, 0, pix, i -> { g.setColor(veil); g.fillRect(0, 0, w, h); });
+            bench("format.spanBlend." + f, canvas, 0, pix, i -> SpanBlend.blend(pix, 0, pix.length, 180, 250, 200, 40 + (i & 127)));
+            g.dispose();
+        }
+        sg.dispose();
+    }
+
+    // ---------------- full frames ----------------
+    private void scenes(int w, int h){
+        String canvas = w + "x" + h;
+        String[] pNames = { "street", "fade", "slime" };
+        double[] pTimes = { 1.0, 2.5, 5.5 };
+        String[] aNames = { "exterior", "black", "hands", "situp", "door", "talk", "jump" };
+        double[] aTimes = { 0.5, 1.3, 2.1, 3.2, 4.4, 5.6, 6.8 };
+
+        if(anyMatch("PixelPanel.", pNames)){
+            OfflineRenderer.Scene pp = test3.RENDERER.create(w, h, threads);
+            for(int k = 0; k < pNames.length; k++){ double t = pTimes[k];
+                frame("PixelPanel." + pNames[k], canvas, i -> pp.renderFrame(t));
+            }
+        }
+        if(anyMatch("AnimPanel.", aNames)){
+            OfflineRenderer.Scene ap = test2.RENDERER.create(w, h, threads);
+            for(int k = 0; k < aNames.length; k++){ double t = aTimes[k];
+                frame("AnimPanel." + aNames[k], canvas, i -> ap.renderFrame(t));
+            }
+        }
+        if(anyMatch("RebornPanel.", pNames)){
+            OfflineRenderer.Scene rp = Animetion.RENDERER.create(w, h, threads);
+            for(int k = 0; k < pNames.length; k++){ double t = pTimes[k];
+                frame("RebornPanel." + pNames[k], canvas, i -> rp.renderFrame(t));
+            }
+        }
+    }
+
+    private interface FrameOp { BufferedImage run(int i); }
+
+    private void frame(String name, String canvas, FrameOp op){
+        bench(name, canvas, 0, null, i -> { BufferedImage img = op.run(i); sink += img.getRGB(i % img.getWidth(), img.getHeight() / 2); });
+    }
+
+    // only build a panel (and its canvas) if one of its scene benchmarks is selected
+    private boolean anyMatch(String prefix, String[] names){
+        for(String n : names) if(filter.matcher(prefix + n).find()) return true;
+        return false;
+    }
+
+    // ---------------- harness ----------------
+    private void bench(String name, String canvas, int size, int[] pix, Op op){
+        if(!filter.matcher(name).find()) return;
+        int[] counter = { 0 };
+        for(int k = 0; k < warmup; k++) iteration(op, pix, counter);
+        double[] ns = new double[iterations];
+        for(int k = 0; k < iterations; k++) ns[k] = iteration(op, pix, counter);
+        double mean = 0; for(double v : ns) mean += v; mean /= ns.length;
+        double var = 0; for(double v : ns) var += (v - mean) * (v - mean); double sd = Math.sqrt(var / (ns.length - 1));
+        String sz = size == 0 ? "-" : String.valueOf(size);
+        System.out.printf(Locale.ROOT, "%-26s %11s %6s %14.1f %12.1f%n", name, canvas, sz, mean, sd);
+        results.add(new String[]{ name, canvas, sz, String.format(Locale.ROOT, "%.1f", mean), String.format(Locale.ROOT, "%.1f", sd) });
+    }
+
+    // Runs op repeatedly for timeMs and returns ns per op.
+    private double iteration(Op op, int[] pix, int[] counter){
+        long deadline = System.nanoTime() + timeMs * 1_000_000L, ops = 0, t0 = System.nanoTime(), now;
+        do {
+            op.run(counter[0]++);
+            ops++;
+            now = System.nanoTime();
+        } while(now < deadline);
+        if(pix != null) sink += pix[(counter[0] * 31) % pix.length];
+        return (now - t0) / (double)ops;
+    }
+
+    private void writeCsv() throws IOException {
+        try(PrintWriter w = new PrintWriter(Files.newBufferedWriter(Paths.get(csv)))){
+            w.println("benchmark,canvas,size,ns_per_op,stdev");
+            for(String[] r : results) w.println(String.join(",", r));
+        }
+    }
+
+    // Prints every benchmark that got slower than the baseline by more than the tolerance.
+    private int regressions() throws IOException {
+        Map<String, Double> base = new HashMap<>();
+        for(String line : Files.readAllLines(Paths.get(compare))){
+            String[] f = line.split(",");
+            if(f.length < 4 || f[0].equals("benchmark")) continue;
+            base.put(f[0] + "@" + f[1] + "/" + f[2], Double.parseDouble(f[3]));
+        }
+        int n = 0;
+        for(String[] r : results){
+            Double old = base.get(r[0] + "@" + r[1] + "/" + r[2]);
+            double now = Double.parseDouble(r[3]);
+            if(old != null && now > old * (1 + tolerance)){
+                System.out.printf(Locale.ROOT, "REGRESSION %s %s size=%s: %.1f -> %.1f ns/op (+%.0f%%)%n",
+                        r[0], r[1], r[2], old, now, 100 * (now / old - 1));
+                n++;
+            }
+        }
+        System.out.println(n == 0 ? "no regressions against " + compare : n + " regression(s) against " + compare);
+        return n;
+    }
+}
@@ -0,0 +1,189 @@
+// RenderFarm.java
+// Parallel offline rendering of a frame range (OfflineRenderer --workers N).
+// - The range is cut into chunks of consecutive frames (--chunk, default: about 8 chunks per
+//   worker). Chunks run on a ForkJoinPool: idle workers steal the other half of a busy worker's
+//   range, so all cores stay busy although slime frames cost several times a street frame
+// - Every worker thread owns its own scene (canvas + scratch), created with one raster thread:
+//   frames, not bands, are the unit of parallelism here. Scenes come from the headless factory
+//   (PixelRenderer / AnimRenderer, not their Swing panels), so workers start no schedulers and
+//   register no exit hooks
+// - Frames are pure functions of their time (frame i is t = i / fps), so any worker may render
+//   any frame and the output is bit-identical to a sequential render
+// - Output is reassembled in frame order: image sequences are one file per absolute frame index;
+//   raw video is one pre-sized file that each frame is written into at its own offset
+// - Resume (--resume): image frames that already exist are kept (frames are written to a temp
+//   file and renamed, so an existing file is complete); raw renders keep a journal of finished
+//   chunks next to the output (<out>.done) until the whole range is done
+// - Reports aggregate frames/sec plus frames and render time per worker on stderr
+// - Several processes or machines can share a loop by giving each a --start/--end range
+//
+// Usage:
+//   java test3 --headless --workers 8 [--chunk 8] [--resume] [--start 0] [--end 8]
+//              [--size 3840x2160] [--format png|ppm|raw] --out DIR|FILE
+
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+final class RenderFarm {
+    private static final int CHUNKS_PER_WORKER = 8;
+
+    // Per-thread state: the worker's own scene and rgb24 scratch.
+    private static final class Worker {
+        final OfflineRenderer.Scene scene;
+        final OfflineRenderer.Rgb24 rgb24 = new OfflineRenderer.Rgb24();
+        int frames; long renderNanos;
+        Worker(OfflineRenderer.Scene scene){ this.scene = scene; }
+    }
+
+    private final OfflineRenderer.Factory factory;
+    private final int width, height, workers;
+    private final double fps, start, end;
+    private final String format, out;
+    private final boolean resume;
+    private int chunk;
+
+    private final List<Worker> all = Collections.synchronizedList(new ArrayList<>());
+    private final ThreadLocal<Worker> worker = ThreadLocal.withInitial(() -> {
+        Worker w = new Worker(createScene());
+        all.add(w);
+        return w;
+    });
+
+    private long first;           // absolute index of the first frame in the range
+    private int frames, w, h;
+    private BitSet done;          // frames (relative to first) finished by an earlier run
+    private FileChannel raw;      // raw output, written at frame offsets
+    private Writer journal;       // raw output: finished chunks, "first end" per line
+
+    RenderFarm(OfflineRenderer.Factory factory, int width, int height, double fps, double start, double end,
+               String format, String out, int workers, int chunk, boolean resume){
+        this.factory = factory; this.width = width; this.height = height;
+        this.fps = fps; this.start = start; this.end = end;
+        this.format = format; this.out = out;
+        this.workers = workers; this.chunk = chunk; this.resume = resume;
+    }
+
+    private OfflineRenderer.Scene createScene(){ return factory.create(width, height, 1); }
+
+    void run() throws IOException {
+        OfflineRenderer.Scene probe = createScene(); // canvas size and loop length
+        w = probe.frameWidth(); h = probe.frameHeight();
+        double stop = end < 0 ? probe.duration() : end;
+        first = Math.round(start * fps);
+        frames = (int)Math.max(0, Math.round(stop * fps) - first);
+        if(chunk == 0) chunk = Math.max(1, frames / (workers * CHUNKS_PER_WORKER));
+        int chunks = (frames + chunk - 1) / chunk;
+        done = new BitSet(frames);
+
+        Path journalPath = null;
+        if(format.equals("raw")){
+            Path path = Paths.get(out);
+            journalPath = Paths.get(out + ".done");
+            if(resume && Files.exists(path) && Files.exists(journalPath)) readJournal(journalPath);
+            else Files.deleteIfExists(journalPath);
+            raw = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            raw.truncate((long)frames * w * h * 3);
+            if(raw.size() < (long)frames * w * h * 3){
+                raw.write(ByteBuffer.allocate(1), (long)frames * w * h * 3 - 1); // pre-size the file
+            }
+            journal = Files.newBufferedWriter(journalPath, StandardCharsets.US_ASCII,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } else {
+            File dir = new File(out);
+            if(!dir.isDirectory() && !dir.mkdirs()) throw new IOException("cannot create " + dir);
+            if(resume) for(int k = 0; k < frames; k++) if(frameFile(k).isFile()) done.set(k);
+        }
+        int skipped = done.cardinality();
+
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        long begin = System.nanoTime();
+        try {
+            if(chunks > 0) pool.invoke(new ChunkTask(0, chunks));
+        } catch(UncheckedIOException e){
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+            if(raw != null) raw.close();
+            if(journal != null) journal.close();
+        }
+        long total = System.nanoTime() - begin;
+        if(journalPath != null) Files.deleteIfExists(journalPath); // every chunk is in the file
+
+        int rendered = frames - skipped;
+        System.err.printf(Locale.ROOT, "farm: rendered %d frames (%d already done) (%dx%d, %s) on %d workers in %.2f s: %.1f fps aggregate, %d chunks of %d, %d steals%n",
+                rendered, skipped, w, h, format, workers, total / 1e9,
+                rendered / Math.max(1e-9, total / 1e9), chunks, chunk, pool.getStealCount());
+        synchronized(all){
+            for(int i = 0; i < all.size(); i++){
+                Worker wk = all.get(i);
+                System.err.printf(Locale.ROOT, "  worker %d: %d frames, %.1f fps render-only, %.3f ms/frame%n", i, wk.frames,
+                        wk.frames / Math.max(1e-9, wk.renderNanos / 1e9), wk.frames == 0 ? 0.0 : wk.renderNanos / 1e6 / wk.frames);
+            }
+        }
+    }
+
+    private File frameFile(int k){ return new File(out, String.format("frame_%05d.%s", first + k, format)); }
+
+    // Chunks finished by an earlier run of the same range; lines that do not fit it are ignored.
+    private void readJournal(Path path) throws IOException {
+        for(String line : Files.readAllLines(path, StandardCharsets.US_ASCII)){
+            String[] f = line.trim().split("\\s+");
+            if(f.length != 2) continue;
+            long a = Long.parseLong(f[0]) - first, b = Long.parseLong(f[1]) - first;
+            if(a >= 0 && b <= frames && a < b) done.set((int)a, (int)b);
+        }
+    }
+
+    // Render frames [k0, k1) of the range on the calling worker and write them out.
+    private void renderChunk(int k0, int k1) throws IOException {
+        Worker wk = worker.get();
+        boolean wrote = false;
+        for(int k = k0; k < k1; k++){
+            if(done.get(k)) continue;
+            long r0 = System.nanoTime();
+            BufferedImage img = wk.scene.renderFrame((first + k) / fps);
+            wk.renderNanos += System.nanoTime() - r0;
+            wk.frames++;
+            if(raw != null){
+                ByteBuffer buf = ByteBuffer.wrap(wk.rgb24.pack(img), 0, w * h * 3);
+                long pos = (long)k * w * h * 3;
+                while(buf.hasRemaining()) raw.write(buf, pos + buf.position());
+                wrote = true;
+            } else {
+                File f = frameFile(k), tmp = new File(f.getPath() + ".tmp");
+                OfflineRenderer.writeImage(img, tmp, format, wk.rgb24);
+                Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        if(raw != null && wrote){
+            raw.force(false); // the journal must never list frames that are not on disk
+            synchronized(journal){ journal.write((first + k0) + " " + (first + k1) + "\n"); journal.flush(); }
+        }
+    }
+
+    // Chunks [lo, hi): split in halves so idle workers can steal the upper half.
+    private final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int lo, hi;
+        ChunkTask(int lo, int hi){ this.lo = lo; this.hi = hi; }
+        @Override protected void compute(){
+            if(hi - lo == 1){
+                try {
+                    renderChunk(lo * chunk, Math.min(frames, (lo + 1) * chunk));
+                } catch(IOException e){
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new ChunkTask(lo, mid), new ChunkTask(mid, hi));
+        }
+    }
+}
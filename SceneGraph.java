@@ -0,0 +1,381 @@
+// SceneGraph.java
+// Retained scene graph on top of the pixel-engine primitives (PixelEngine in test3).
+// - Scenes build their nodes once and afterwards only change node parameters per frame
+//   (position, alpha, radii); drawing is one walk over the tree
+// - Group: children, an origin in the parent's units and an alpha that multiplies into the
+//   subtree. A pixel group measures its children in device pixels instead of scene units (for
+//   geometry that is quantized in device space on purpose, like the slime)
+// - Shapes keep their device geometry (vertices, radii) relative to their origin and rebuild it
+//   only when one of their own parameters changes; moving a node just offsets it. Shapes are
+//   therefore rigid: a point is drawn at round(origin) + round(offset), so an object keeps its
+//   exact pixel shape while it moves (at 600x600, scale 1, this is the same as rounding scene
+//   coordinates). Flattened curves are also kept until the curve changes or moves
+// - Every node caches its device bounds; a subtree whose bounds miss the canvas (off-screen, or
+//   outside the band an engine is drawing) is skipped without visiting it. Moving a node only
+//   re-unions the bounds of its ancestors
+// - Sprite: an instance of a detached actor group (truck, stickman) drawn from a bitmap. The
+//   group is rasterized once into a premultiplied ARGB sprite and every instance (motion-blur
+//   ghosts included) is then one blit with its own offset and alpha. The bitmap is redrawn only
+//   after something in the group changes. Flattening the group first also means a translucent
+//   instance shows the actor's outline, not its overlapping parts blended on top of each other
+// - One graph per band engine: nodes hold caches for one canvas and are not thread-safe
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class SceneGraph {
+
+    // Device-pixel primitives the shapes are drawn with (implemented by PixelEngine).
+    interface Canvas {
+        // false if nothing inside the inclusive device box [x0, x1] x [y0, y1] can be drawn
+        boolean visible(int x0, int y0, int x1, int y1);
+        void line(int x0, int y0, int x1, int y1, int r, int g, int b, int a);
+        void thickLine(int x0, int y0, int x1, int y1, int rr, int r, int g, int b, int a);
+        void fillCircle(int cx, int cy, int rr, int r, int g, int b, int a);
+        void fillEllipse(int xc, int yc, int rx, int ry, int r, int g, int b, int a);
+        void fillPolygon(int[] xs, int[] ys, int n, int r, int g, int b, int a);
+        // segments used to flatten a quadratic curve whose control polygon is `length` pixels long
+        int curveSteps(double length);
+        // canvas over a w x h premultiplied ARGB bitmap (all rows), to rasterize sprites into
+        Canvas offscreen(int[] argb, int w, int h);
+        // blend a w x h premultiplied ARGB bitmap with its top-left at (x, y), scaled by alpha
+        void blit(int[] argb, int w, int h, int x, int y, int alpha);
+    }
+
+    private final Group root = new Group();
+    private final double scale, ox, oy;
+    private int visited, culled;
+
+    // Root group in scene units: scene point (x, y) is device (ox + x*scale, oy + y*scale).
+    SceneGraph(double scale, double ox, double oy){ this.scale = scale; this.ox = ox; this.oy = oy; }
+
+    Group root(){ return root; }
+
+    // Nodes drawn / subtrees skipped by bounds in the last draw().
+    int visited(){ return visited; }
+    int culled(){ return culled; }
+
+    void draw(Canvas c){
+        visited = 0; culled = 0;
+        if(root.dirty) root.update(c, scale);
+        root.draw(this, c, ox, oy, scale, 255);
+    }
+
+    // ---------------- nodes ----------------
+
+    abstract static class Node {
+        private Group parent;
+        private double tx, ty;          // origin in the parent's units
+        private boolean visible = true;
+        boolean dirty = true;           // geometry/bounds stale; a dirty node always has dirty ancestors
+        // device bounds relative to the (unrounded) origin; x1 < x0 if the node draws nothing
+        double x0, y0, x1, y1;
+
+        // Move the origin (parent's units). The node's own geometry is kept.
+        final void at(double x, double y){
+            if(x == tx && y == ty) return;
+            tx = x; ty = y;
+            if(parent != null) parent.invalidate();
+        }
+
+        final void visible(boolean v){
+            if(v == visible) return;
+            visible = v;
+            if(parent != null) parent.invalidate();
+        }
+
+        // A parameter changed: rebuild this node and re-union its ancestors' bounds (or, for a
+        // detached sprite source, the bounds of its sprites).
+        final void invalidate(){
+            if(dirty) return;
+            dirty = true;
+            if(parent != null) parent.invalidate();
+            else if(this instanceof Group) for(Sprite s : ((Group)this).sprites) s.invalidate();
+        }
+
+        // Rebuild geometry and bounds for `unit` device pixels per local unit.
+        abstract void update(Canvas c, double unit);
+
+        abstract void paint(SceneGraph g, Canvas c, double x, double y, int alpha);
+
+        final void draw(SceneGraph g, Canvas c, double px, double py, double unit, int alpha){
+            if(!visible || x1 < x0) return;
+            double x = px + tx * unit, y = py + ty * unit;
+            if(!c.visible((int)Math.floor(x + x0) - 1, (int)Math.floor(y + y0) - 1, (int)Math.ceil(x + x1) + 1, (int)Math.ceil(y + y1) + 1)){
+                g.culled++;
+                return;
+            }
+            g.visited++;
+            paint(g, c, x, y, alpha);
+        }
+    }
+
+    static final class Group extends Node {
+        private final List<Node> children = new ArrayList<>();
+        private final boolean pixels; // children are measured in device pixels
+        private double unit;          // device pixels per child unit (set by update)
+        private int alpha = 255;
+        private final List<Sprite> sprites = new ArrayList<>(); // instances, if this is a sprite source
+        // sprite bitmap: premultiplied ARGB, top-left at device offset (bx, by) from the origin
+        private int[] bitmap;
+        private int bx, by, bw, bh;
+        private boolean stale = true;
+
+        Group(){ this(false); }
+        Group(boolean pixels){ this.pixels = pixels; }
+
+        <T extends Node> T add(T n){
+            Node m = n;
+            if(m.parent != null) throw new IllegalStateException("node already belongs to a group");
+            m.parent = this; children.add(m);
+            invalidate();
+            return n;
+        }
+
+        // Opacity of the subtree, 0..255 (multiplies with the ancestors' alpha).
+        void alpha(int a){
+            if(a < 0 || a > 255) throw new IllegalArgumentException("alpha must be 0..255");
+            alpha = a;
+        }
+
+        @Override void update(Canvas c, double parentUnit){
+            unit = pixels ? 1 : parentUnit;
+            x0 = y0 = Double.POSITIVE_INFINITY; x1 = y1 = Double.NEGATIVE_INFINITY;
+            for(Node n : children){
+                if(n.dirty) n.update(c, unit);
+                if(!n.visible || n.x1 < n.x0) continue;
+                double dx = n.tx * unit, dy = n.ty * unit;
+                x0 = Math.min(x0, dx + n.x0); y0 = Math.min(y0, dy + n.y0);
+                x1 = Math.max(x1, dx + n.x1); y1 = Math.max(y1, dy + n.y1);
+            }
+            dirty = false;
+        }
+
+        @Override void paint(SceneGraph g, Canvas c, double x, double y, int parentAlpha){
+            int a = parentAlpha * alpha / 255;
+            for(Node n : children) n.draw(g, c, x, y, unit, a);
+        }
+
+        // Sprite source: bring bounds up to date for `parentUnit` and size the bitmap box around them.
+        private void layout(Canvas c, double parentUnit){
+            if(!dirty && unit == (pixels ? 1 : parentUnit)) return;
+            update(c, parentUnit);
+            stale = true;
+            if(x1 < x0){ bw = bh = 0; return; }
+            bx = (int)Math.floor(x0) - 1; by = (int)Math.floor(y0) - 1;   // one pixel of slack around
+            bw = (int)Math.ceil(x1) + 2 - bx; bh = (int)Math.ceil(y1) + 2 - by;
+        }
+
+        // Sprite source: draw the group (full opacity) into its bitmap, origin at (-bx, -by).
+        private void rasterize(SceneGraph g, Canvas c){
+            if(bitmap == null || bitmap.length < bw * bh) bitmap = new int[bw * bh];
+            else java.util.Arrays.fill(bitmap, 0, bw * bh, 0);
+            int v = g.visited, cu = g.culled;
+            paint(g, c.offscreen(bitmap, bw, bh), -bx, -by, 255);
+            g.visited = v; g.culled = cu;    // the counters describe the frame, not the bitmap
+            stale = false;
+        }
+    }
+
+    // Instance of a detached group drawn from the group's cached bitmap with its own alpha.
+    // Several sprites may share one source; the source must not be added to a group.
+    static final class Sprite extends Node {
+        private final Group source;
+        private int alpha = 255;
+
+        Sprite(Group source){
+            Node m = source;
+            if(m.parent != null) throw new IllegalStateException("sprite source must not belong to a group");
+            this.source = source;
+            source.sprites.add(this);
+        }
+
+        // Opacity of this instance, 0..255 (multiplies with the ancestors' alpha).
+        void alpha(int a){
+            if(a < 0 || a > 255) throw new IllegalArgumentException("alpha must be 0..255");
+            alpha = a;
+        }
+
+        @Override void update(Canvas c, double unit){
+            source.layout(c, unit);
+            x0 = source.bx; y0 = source.by; x1 = source.bx + source.bw - 1; y1 = source.by + source.bh - 1; // empty: x1 < x0
+            dirty = false;
+        }
+
+        @Override void paint(SceneGraph g, Canvas c, double x, double y, int parentAlpha){
+            if(source.stale) source.rasterize(g, c);
+            c.blit(source.bitmap, source.bw, source.bh, (int)Math.round(x) + source.bx, (int)Math.round(y) + source.by, parentAlpha * alpha / 255);
+        }
+    }
+
+    // A leaf drawn with one color. opacity is the fraction of the inherited alpha it is drawn with.
+    abstract static class Shape extends Node {
+        int r = 255, g = 255, b = 255;
+        private double opacity = 1;
+
+        final void color(int r, int g, int b){ this.r = r; this.g = g; this.b = b; }
+
+        final void opacity(double o){
+            if(o < 0 || o > 1) throw new IllegalArgumentException("opacity must be 0..1");
+            opacity = o;
+        }
+
+        @Override final void paint(SceneGraph sg, Canvas c, double x, double y, int alpha){
+            paint(c, (int)Math.round(x), (int)Math.round(y), (int)(alpha * opacity));
+        }
+
+        // Draw at device origin (x, y).
+        abstract void paint(Canvas c, int x, int y, int alpha);
+
+        // bounds from device offsets (inclusive extents)
+        final void bounds(double xa, double ya, double xb, double yb){ x0 = xa; y0 = ya; x1 = xb; y1 = yb; dirty = false; }
+
+        static int px(double v, double unit){ return (int)Math.round(v * unit); }
+    }
+
+    // Filled polygon.
+    static final class Poly extends Shape {
+        private final double[] lx, ly;
+        private final int[] rx, ry, ax, ay; // offsets from the origin; absolute vertices of the last paint
+        private int lastX, lastY;
+        private boolean moved = true;
+
+        Poly(double[] xs, double[] ys){
+            if(xs.length != ys.length) throw new IllegalArgumentException("xs and ys differ in length");
+            int n = xs.length;
+            lx = xs.clone(); ly = ys.clone();
+            rx = new int[n]; ry = new int[n]; ax = new int[n]; ay = new int[n];
+        }
+
+        // Axis-aligned rectangle (xl,yt)-(xr,yb), same vertex order as PixelEngine's quads.
+        static Poly quad(double xl, double yt, double xr, double yb){
+            return new Poly(new double[]{ xl, xr, xr, xl }, new double[]{ yt, yt, yb, yb });
+        }
+
+        void set(int i, double x, double y){
+            if(lx[i] == x && ly[i] == y) return;
+            lx[i] = x; ly[i] = y; invalidate();
+        }
+
+        @Override void update(Canvas c, double unit){
+            int xa = Integer.MAX_VALUE, ya = Integer.MAX_VALUE, xb = Integer.MIN_VALUE, yb = Integer.MIN_VALUE;
+            for(int i = 0; i < lx.length; i++){
+                rx[i] = px(lx[i], unit); ry[i] = px(ly[i], unit);
+                xa = Math.min(xa, rx[i]); xb = Math.max(xb, rx[i]); ya = Math.min(ya, ry[i]); yb = Math.max(yb, ry[i]);
+            }
+            moved = true;
+            bounds(xa, ya, xb, yb);
+        }
+
+        @Override void paint(Canvas c, int x, int y, int alpha){
+            if(moved || x != lastX || y != lastY){
+                for(int i = 0; i < rx.length; i++){ ax[i] = x + rx[i]; ay[i] = y + ry[i]; }
+                lastX = x; lastY = y; moved = false;
+            }
+            c.fillPolygon(ax, ay, ax.length, r, g, b, alpha);
+        }
+    }
+
+    // Filled circle.
+    static final class Disc extends Shape {
+        private double cx, cy, rad;
+        private int dx, dy, dr;
+
+        Disc(double cx, double cy, double rad){ this.cx = cx; this.cy = cy; this.rad = rad; }
+
+        void set(double cx, double cy, double rad){
+            if(cx == this.cx && cy == this.cy && rad == this.rad) return;
+            this.cx = cx; this.cy = cy; this.rad = rad; invalidate();
+        }
+
+        @Override void update(Canvas c, double unit){
+            dx = px(cx, unit); dy = px(cy, unit); dr = px(rad, unit);
+            bounds(dx - dr, dy - dr, dx + dr, dy + dr);
+        }
+
+        @Override void paint(Canvas c, int x, int y, int alpha){ c.fillCircle(x + dx, y + dy, dr, r, g, b, alpha); }
+    }
+
+    // Filled axis-aligned ellipse.
+    static final class Oval extends Shape {
+        private double cx, cy, rx, ry;
+        private int dx, dy, drx, dry;
+
+        Oval(double cx, double cy, double rx, double ry){ this.cx = cx; this.cy = cy; this.rx = rx; this.ry = ry; }
+
+        void set(double cx, double cy, double rx, double ry){
+            if(cx == this.cx && cy == this.cy && rx == this.rx && ry == this.ry) return;
+            this.cx = cx; this.cy = cy; this.rx = rx; this.ry = ry; invalidate();
+        }
+
+        @Override void update(Canvas c, double unit){
+            dx = px(cx, unit); dy = px(cy, unit); drx = px(rx, unit); dry = px(ry, unit);
+            bounds(dx - drx, dy - dry, dx + drx, dy + dry);
+        }
+
+        @Override void paint(Canvas c, int x, int y, int alpha){ c.fillEllipse(x + dx, y + dy, drx, dry, r, g, b, alpha); }
+    }
+
+    // Line of radius `width` (disc-stamped thick line).
+    static final class Stroke extends Shape {
+        private double xa, ya, xb, yb, width;
+        private int dxa, dya, dxb, dyb, dw;
+
+        Stroke(double xa, double ya, double xb, double yb, double width){ this.xa = xa; this.ya = ya; this.xb = xb; this.yb = yb; this.width = width; }
+
+        void set(double xa, double ya, double xb, double yb){
+            if(xa == this.xa && ya == this.ya && xb == this.xb && yb == this.yb) return;
+            this.xa = xa; this.ya = ya; this.xb = xb; this.yb = yb; invalidate();
+        }
+
+        @Override void update(Canvas c, double unit){
+            dxa = px(xa, unit); dya = px(ya, unit); dxb = px(xb, unit); dyb = px(yb, unit); dw = px(width, unit);
+            bounds(Math.min(dxa, dxb) - dw, Math.min(dya, dyb) - dw, Math.max(dxa, dxb) + dw, Math.max(dya, dyb) + dw);
+        }
+
+        @Override void paint(Canvas c, int x, int y, int alpha){ c.thickLine(x + dxa, y + dya, x + dxb, y + dyb, dw, r, g, b, alpha); }
+    }
+
+    // Quadratic Bezier polyline. It is flattened at its device position (the rounding of the
+    // points depends on it) and the polyline is reused until the curve changes or moves.
+    static final class Curve extends Shape {
+        private final double[] p = new double[6];
+        private final int[] d = new int[6];      // control points, device offsets from the origin
+        private int[] xs = new int[16], ys = new int[16];
+        private int n, lastX, lastY;
+        private boolean stale = true;
+
+        Curve(double x0, double y0, double x1, double y1, double x2, double y2){
+            p[0] = x0; p[1] = y0; p[2] = x1; p[3] = y1; p[4] = x2; p[5] = y2;
+        }
+
+        void set(double x0, double y0, double x1, double y1, double x2, double y2){
+            if(x0 == p[0] && y0 == p[1] && x1 == p[2] && y1 == p[3] && x2 == p[4] && y2 == p[5]) return;
+            p[0] = x0; p[1] = y0; p[2] = x1; p[3] = y1; p[4] = x2; p[5] = y2;
+            invalidate();
+        }
+
+        @Override void update(Canvas c, double unit){
+            for(int i = 0; i < 6; i++) d[i] = px(p[i], unit);
+            stale = true;
+            bounds(Math.min(d[0], Math.min(d[2], d[4])), Math.min(d[1], Math.min(d[3], d[5])), Math.max(d[0], Math.max(d[2], d[4])), Math.max(d[1], Math.max(d[3], d[5])));
+        }
+
+        private void flatten(Canvas c, int x, int y){
+            int x0 = x + d[0], y0 = y + d[1], x1 = x + d[2], y1 = y + d[3], x2 = x + d[4], y2 = y + d[5];
+            int steps = c.curveSteps(Math.hypot(x1 - x0, y1 - y0) + Math.hypot(x2 - x1, y2 - y1));
+            if(xs.length < steps + 1){ xs = new int[steps + 1]; ys = new int[steps + 1]; }
+            xs[0] = x0; ys[0] = y0;
+            for(int i = 1; i <= steps; i++){
+                double t = i / (double)steps, u = 1 - t;
+                xs[i] = (int)Math.round(u*u*x0 + 2*u*t*x1 + t*t*x2); ys[i] = (int)Math.round(u*u*y0 + 2*u*t*y1 + t*t*y2);
+            }
+            n = steps + 1; lastX = x; lastY = y; stale = false;
+        }
+
+        @Override void paint(Canvas c, int x, int y, int alpha){
+            if(stale || x != lastX || y != lastY) flatten(c, x, y);
+            for(int i = 1; i < n; i++) c.line(xs[i - 1], ys[i - 1], xs[i], ys[i], r, g, b, alpha);
+        }
+    }
+}
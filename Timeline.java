@@ -0,0 +1,219 @@
+// Timeline.java
+// Declarative scene timing shared by all four animations.
+// - A timeline is a list of scenes (name + end time, each scene starts where the previous one
+//   ended) plus keyframe tracks (time, value, easing towards the next key)
+// - Lookups are binary searches over the scene ends / key times: O(log n) per query and no
+//   state, so any time can be rendered directly (seeking, scrubbing, rendering frame ranges
+//   out of order)
+// - Scene boundaries are either exclusive (t == end belongs to the next scene) or inclusive
+//   (t == end still belongs to the scene), matching how each animation cut its scenes before
+// - Times before 0 or after the last scene clamp to the first / last scene; tracks hold their
+//   first / last value outside their keys
+// - Timelines are immutable once built and may be shared between render threads
+//
+// File format (-Dtimeline=FILE replaces an animation's built-in timeline; '#' starts a comment).
+// The file must key every track of the built-in timeline and use only its scene names; a file
+// that cannot be read, does not parse or fails that check is reported on stderr and the
+// built-in timeline is used:
+//   ends inclusive|exclusive                  scene boundaries (default exclusive)
+//   scene <name> <end seconds>                scenes in order, the first starts at 0
+//   key <track> <time> <value> [easing]       keys in time order; easing shapes the way to the
+//                                             next key: linear (default), step, easeOutQuad,
+//                                             easeInOutSine, easeOutBounce
+// Example:
+//   ends inclusive
+//   scene street 2
+//   scene fade 3
+//   scene slime 8
+//   key fade.alpha 2 0
+//   key fade.alpha 3 255
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+final class Timeline {
+
+    enum Easing {
+        LINEAR, STEP, EASE_OUT_QUAD, EASE_IN_OUT_SINE, EASE_OUT_BOUNCE;
+
+        double apply(double t){
+            switch(this){
+                case STEP:             return t < 1 ? 0 : 1;
+                case EASE_OUT_QUAD:    return t * (2 - t);
+                case EASE_IN_OUT_SINE: return 0.5 * (1 - Math.cos(Math.PI * t));
+                case EASE_OUT_BOUNCE:
+                    if(t < 1 / 2.75) return 7.5625 * t * t;
+                    if(t < 2 / 2.75){ t -= 1.5 / 2.75; return 7.5625 * t * t + .75; }
+                    if(t < 2.5 / 2.75){ t -= 2.25 / 2.75; return 7.5625 * t * t + .9375; }
+                    t -= 2.625 / 2.75; return 7.5625 * t * t + .984375;
+                default:               return t;
+            }
+        }
+
+        // easeOutQuad, EASE_OUT_QUAD, ... (case and underscores are ignored)
+        static Easing parse(String s){
+            for(Easing e : values()) if(e.name().replace("_", "").equalsIgnoreCase(s.replace("_", ""))) return e;
+            throw new IllegalArgumentException("unknown easing " + s);
+        }
+    }
+
+    // One animated value.
+    static final class Track {
+        final String name;
+        private double[] times = new double[4], values = new double[4];
+        private Easing[] easings = new Easing[4];
+        private int n;
+
+        private Track(String name){ this.name = name; }
+
+        private void add(double t, double v, Easing e){
+            if(n > 0 && t < times[n - 1]) throw new IllegalArgumentException("keys of track " + name + " out of order at " + t);
+            if(n == times.length){
+                times = Arrays.copyOf(times, 2 * n); values = Arrays.copyOf(values, 2 * n); easings = Arrays.copyOf(easings, 2 * n);
+            }
+            times[n] = t; values[n] = v; easings[n] = e; n++;
+        }
+
+        double value(double t){
+            if(t <= times[0]) return values[0];
+            if(t >= times[n - 1]) return values[n - 1];
+            int lo = 0, hi = n - 1;                    // last key at or before t
+            while(hi - lo > 1){ int mid = (lo + hi) >>> 1; if(times[mid] <= t) lo = mid; else hi = mid; }
+            double u = (t - times[lo]) / (times[lo + 1] - times[lo]);
+            return values[lo] + (values[lo + 1] - values[lo]) * easings[lo].apply(u);
+        }
+    }
+
+    private final boolean inclusive;
+    private double[] ends = new double[4];
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Track> tracks = new HashMap<>();
+
+    // inclusive: a scene still owns t == its end time.
+    Timeline(boolean inclusive){ this.inclusive = inclusive; }
+
+    // ---------------- building ----------------
+
+    Timeline scene(String name, double end){
+        int n = names.size();
+        if(end <= (n == 0 ? 0 : ends[n - 1])) throw new IllegalArgumentException("scene " + name + " must end after the previous one");
+        if(n == ends.length) ends = Arrays.copyOf(ends, 2 * n);
+        ends[n] = end; names.add(name);
+        return this;
+    }
+
+    Timeline key(String track, double t, double value, Easing easing){
+        tracks.computeIfAbsent(track, Track::new).add(t, value, easing);
+        return this;
+    }
+
+    Timeline key(String track, double t, double value){ return key(track, t, value, Easing.LINEAR); }
+
+    // Fails if a scene is not one of `known` (the scenes the animation can draw).
+    Timeline requireScenes(String... known){
+        for(String s : names) if(!Arrays.asList(known).contains(s)) throw new IllegalArgumentException("unknown scene " + s + " (known: " + String.join(", ", known) + ")");
+        if(names.isEmpty()) throw new IllegalArgumentException("timeline has no scenes");
+        return this;
+    }
+
+    // The timeline in -Dtimeline=FILE if that is set and usable, otherwise `builtIn`. Animations
+    // build their timeline in field and static initializers, where a bad file would only surface
+    // as an ExceptionInInitializerError, so problems are reported here and the built-in is kept.
+    static Timeline fromProperties(Timeline builtIn){
+        String file = System.getProperty("timeline");
+        if(file == null) return builtIn;
+        try(Reader r = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)){
+            return parse(r).requireLike(builtIn);
+        } catch(IOException e){
+            System.err.println("timeline " + file + ": cannot read (" + e + "), using the built-in timeline");
+        } catch(IllegalArgumentException e){
+            System.err.println("timeline " + file + ": " + e.getMessage() + ", using the built-in timeline");
+        }
+        return builtIn;
+    }
+
+    // Fails unless this timeline keys every track of `builtIn` and only uses its scene names.
+    private Timeline requireLike(Timeline builtIn){
+        List<String> missing = new ArrayList<>();
+        for(String t : builtIn.tracks.keySet()) if(!tracks.containsKey(t)) missing.add(t);
+        if(!missing.isEmpty()) throw new IllegalArgumentException("missing track" + (missing.size() == 1 ? " " : "s ") + String.join(", ", missing));
+        return requireScenes(builtIn.names.toArray(new String[0]));
+    }
+
+    static Timeline parse(Reader in) throws IOException {
+        BufferedReader r = new BufferedReader(in);
+        List<String[]> lines = new ArrayList<>();
+        boolean inclusive = false;
+        String line;
+        while((line = r.readLine()) != null){
+            int c = line.indexOf('#');
+            String s = (c >= 0 ? line.substring(0, c) : line).trim();
+            if(s.isEmpty()) continue;
+            String[] f = s.split("\\s+");
+            if(f[0].equals("ends") && f.length == 2 && (f[1].equals("inclusive") || f[1].equals("exclusive"))) inclusive = f[1].equals("inclusive");
+            else lines.add(f);
+        }
+        Timeline tl = new Timeline(inclusive);
+        for(String[] f : lines){
+            try {
+                if(f[0].equals("scene") && f.length == 3) tl.scene(f[1], Double.parseDouble(f[2]));
+                else if(f[0].equals("key") && (f.length == 4 || f.length == 5))
+                    tl.key(f[1], Double.parseDouble(f[2]), Double.parseDouble(f[3]), f.length == 5 ? Easing.parse(f[4]) : Easing.LINEAR);
+                else throw new IllegalArgumentException("expected 'scene NAME END' or 'key TRACK TIME VALUE [EASING]'");
+            } catch(IllegalArgumentException e){
+                throw new IllegalArgumentException("'" + String.join(" ", f) + "': " + e.getMessage(), e);
+            }
+        }
+        return tl;
+    }
+
+    // ---------------- queries ----------------
+
+    double duration(){ return ends[names.size() - 1]; }
+    int scenes(){ return names.size(); }
+    String name(int scene){ return names.get(scene); }
+    double start(int scene){ return scene == 0 ? 0 : ends[scene - 1]; }
+    double end(int scene){ return ends[scene]; }
+
+    // Index of the scene playing at time t.
+    int scene(double t){
+        int lo = 0, hi = names.size() - 1;             // first scene whose end is after t (or at t)
+        while(lo < hi){
+            int mid = (lo + hi) >>> 1;
+            if(inclusive ? ends[mid] >= t : ends[mid] > t) hi = mid; else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    String sceneAt(double t){ return names.get(scene(t)); }
+
+    // Progress 0..1 through `scene` at time t.
+    double progress(int scene, double t){
+        double s = start(scene), e = ends[scene];
+        return (Math.min(Math.max(t, s), e) - s) / (e - s);
+    }
+
+    Track track(String name){
+        Track t = tracks.get(name);
+        if(t == null) throw new IllegalArgumentException("timeline has no track " + name + " (tracks: " + String.join(", ", tracks.keySet()) + ")");
+        return t;
+    }
+
+    @Override public String toString(){
+        StringBuilder b = new StringBuilder("ends ").append(inclusive ? "inclusive" : "exclusive").append('\n');
+        for(int i = 0; i < names.size(); i++) b.append(String.format(Locale.ROOT, "scene %s %s%n", names.get(i), ends[i]));
+        for(Track t : tracks.values())
+            for(int i = 0; i < t.n; i++) b.append(String.format(Locale.ROOT, "key %s %s %s %s%n", t.name, t.times[i], t.values[i], t.easings[i]));
+        return b.toString();
+    }
+}
@@ -0,0 +1,9 @@
+#!/bin/sh
+# Compiles every source into a temporary directory and runs RasterBench with the given options,
+# e.g. ./rasterbench.sh --filter test3 --sizes 600x600
+set -e
+cd "$(dirname "$0")"
+out=$(mktemp -d)
+trap 'rm -rf "$out"' EXIT
+javac -encoding UTF-8 -d "$out" *.java
+java -cp "$out" RasterBench "$@"
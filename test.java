@@ -1,42 +1,109 @@
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.*;
+import java.awt.image.BufferedImage;
 
-public class test extends JPanel implements ActionListener {
+public class test extends JPanel implements OfflineRenderer.Scene {
     private Image bgScene1;
-    private Timer timer;
-    private int frame = 0;
+    private FrameScheduler scheduler;
+    private volatile int frame = 0; // เฟรมที่แสดงบนจอ ตั้งโดย scheduler เท่านั้น
     private final int FPS = 30;
+    private final int W = 600, H = 600;
+    // เวลาของฉาก (วินาที) แทนที่ได้ด้วย -Dtimeline=FILE — ฉาก 7 กระโดดวนไปเรื่อย ๆ หลัง 15 วินาที
+    private final Timeline timeline = Timeline.fromProperties(new Timeline(false)
+            .scene("hospital", 3).scene("dark", 4).scene("hands", 6).scene("bed", 8)
+            .scene("doctor", 10).scene("talk", 13).scene("jump", 15))
+            .requireScenes("hospital", "dark", "hands", "bed", "doctor", "talk", "jump");
+    private BufferedImage frameImage; // เฟรมสำหรับเรนเดอร์แบบ offline
 
     public test() {
-        setPreferredSize(new Dimension(600, 600));
+        setPreferredSize(new Dimension(W, H));
         bgScene1 = new ImageIcon("hospital.jpg").getImage(); // โรงพยาบาล
-        timer = new Timer(1000 / FPS, this);
-        timer.start();
+        // frame = เวลาของ deadline * FPS ความเร็วแอนิเมชันจึงไม่ขึ้นกับ -Dframe.rate
+        scheduler = FrameScheduler.fromProperties(FPS, (i, t) -> {
+            frame = frameOf(t);
+            repaint();
+        });
+    }
+
+    public void start() {
+        scheduler.start("test-frames");
+    }
+
+    // Offline rendering: frame = t * FPS แบบเดียวกับตอนเล่นบนจอ
+    // เฟรมเป็นฟังก์ชันของเวลาอย่างเดียว (ไม่แตะ state ของจอ) จึงเรนเดอร์เฟรมไหนก่อนก็ได้ผลเหมือนกัน
+    @Override
+    public int frameWidth() {
+        return W;
+    }
+
+    @Override
+    public int frameHeight() {
+        return H;
+    }
+
+    @Override
+    public double duration() {
+        return timeline.duration();
+    }
+
+    @Override
+    public BufferedImage renderFrame(double t) {
+        if (frameImage == null) {
+            frameImage = new BufferedImage(W, H, BufferedImage.TYPE_INT_RGB);
+            setSize(W, H);
+        }
+        Graphics2D g = frameImage.createGraphics();
+        super.paintComponent(g);
+        paintFrame(g, frameOf(t));
+        g.dispose();
+        return frameImage;
     }
 
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        Graphics2D g2 = (Graphics2D) g;
-
-        if (frame < FPS * 3) {
-            drawScene1(g2); // โรงพยาบาล
-        } else if (frame < FPS * 4) {
-            drawScene2(g2); // ฉากดำ + ข้อความ
-        } else if (frame < FPS * 6) {
-            drawScene3(g2); // Fade in + มือ
-        } else if (frame < FPS * 8) {
-            drawScene4(g2); // พระเอกบนเตียง
-        } else if (frame < FPS * 10) {
-            drawScene5(g2); // หมอเดินเข้ามา
-        } else if (frame < FPS * 13) {
-            drawScene6(g2); // หมอนั่งพูด
-        } else {
-            drawScene7(g2); // กระโดดหน้าต่าง
+        paintFrame((Graphics2D) g, frame);
+    }
+
+    // วาดเฟรมที่ f — ใช้ร่วมกันทั้งบนจอและ offline
+    private void paintFrame(Graphics2D g2, int f) {
+        int scene = timeline.scene(f / (double) FPS);
+        int sceneFrame = f - frameAt(timeline.start(scene)); // เฟรมนับจากต้นฉาก
+
+        switch (timeline.name(scene)) {
+            case "hospital":
+                drawScene1(g2); // โรงพยาบาล
+                break;
+            case "dark":
+                drawScene2(g2); // ฉากดำ + ข้อความ
+                break;
+            case "hands":
+                drawScene3(g2, sceneFrame, frameAt(timeline.end(scene)) - frameAt(timeline.start(scene))); // Fade in + มือ
+                break;
+            case "bed":
+                drawScene4(g2); // พระเอกบนเตียง
+                break;
+            case "doctor":
+                drawScene5(g2, sceneFrame); // หมอเดินเข้ามา
+                break;
+            case "talk":
+                drawScene6(g2); // หมอนั่งพูด
+                break;
+            default:
+                drawScene7(g2, sceneFrame); // กระโดดหน้าต่าง
         }
     }
 
+    // เฟรมที่กำลังเล่นอยู่ ณ เวลา t (วินาที)
+    private int frameOf(double t) {
+        return (int) (t * FPS);
+    }
+
+    // เลขเฟรมของเวลา t (วินาที)
+    private int frameAt(double t) {
+        return (int) Math.round(t * FPS);
+    }
+
     // Scene 1: โรงพยาบาล
     private void drawScene1(Graphics2D g) {
         g.drawImage(bgScene1, 0, 0, getWidth(), getHeight(), this);
@@ -74,8 +141,8 @@ public class test extends JPanel implements ActionListener {
     }
 
     // Scene 3: Fade in + มือ
-    private void drawScene3(Graphics2D g) {
-        float alpha = (frame - FPS * 4) / (float) (FPS * 2);
+    private void drawScene3(Graphics2D g, int sceneFrame, int frames) {
+        float alpha = sceneFrame / (float) frames;
         int r = (int) (200 * alpha);
         int gr = (int) (230 * alpha);
         int b = (int) (255 * alpha);
@@ -104,7 +171,7 @@ public class test extends JPanel implements ActionListener {
     }
 
     // Scene 5: หมอเดินเข้ามา
-    private void drawScene5(Graphics2D g) {
+    private void drawScene5(Graphics2D g, int sceneFrame) {
         g.setColor(new Color(255, 255, 240));
         g.fillRect(0, 0, getWidth(), getHeight());
 
@@ -112,7 +179,7 @@ public class test extends JPanel implements ActionListener {
         g.drawRect(450, 250, 50, 100); // ประตู
 
         // เคลื่อนไหวเข้ามา
-        int doctorX = 500 - (frame - FPS * 8) * 3;
+        int doctorX = 500 - sceneFrame * 3;
         g.setColor(Color.BLUE);
         drawStickFigure(g, doctorX, 320, 20);
 
@@ -138,14 +205,14 @@ public class test extends JPanel implements ActionListener {
     }
 
     // Scene 7: กระโดดหน้าต่าง
-    private void drawScene7(Graphics2D g) {
+    private void drawScene7(Graphics2D g, int sceneFrame) {
         g.setColor(new Color(200, 230, 255));
         g.fillRect(0, 0, getWidth(), getHeight());
 
         g.setColor(Color.BLACK);
         g.drawString("ฮุน: ฮุน เซน!?...", 250, 100);
 
-        int y = 320 - ((frame - FPS * 13) % 30) * 5; // กระโดดขึ้น
+        int y = 320 - (sceneFrame % 30) * 5; // กระโดดขึ้น
         drawStickFigure(g, 300, y, 30);
     }
 
@@ -191,13 +258,11 @@ public class test extends JPanel implements ActionListener {
         g.fillRect(xc - y, yc - x, 1, 1);
     }
 
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        frame++;
-        repaint();
-    }
-
     public static void main(String[] args) {
+        if (OfflineRenderer.isHeadless(args)) {
+            OfflineRenderer.run(args, (w, h, threads) -> new test()); // fixed 600x600 canvas
+            return;
+        }
         JFrame frame = new JFrame("WHAT IF I REBORNED");
         test panel = new test();
         frame.add(panel);
@@ -205,5 +270,6 @@ public class test extends JPanel implements ActionListener {
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setLocationRelativeTo(null);
         frame.setVisible(true);
+        panel.start();
     }
 }
@@ -6,6 +6,18 @@
 // - 7 scenes under the theme "WHAT IF I REBORNED"
 // - Java2D only; avoids Graphics2D shape-creation APIs (no drawLine/drawOval/etc.)
 //   Uses pixel plotting via BufferedImage. drawImage is used only to present the raster.
+// - Rendering is band-parallel: AnimEngine draws one horizontal band of the raster and
+//   BandRenderer runs the bands on a ForkJoinPool (-Draster.threads=N, default all cores).
+// - Frames are drawn into a ring of back buffers (FrameRing) and handed to the EDT with an
+//   atomic swap, so the blit never shows a half-drawn frame (-Dframe.buffers=2|3).
+// - Static backgrounds (hospital exterior, room) are drawn once per band and restored
+//   from the cache each frame (LayerCache, -Dlayer.cache=false to disable).
+// - Dirty rectangles: each frame only restores what the previous frame in the same buffer drew
+//   over the layer, and the panel repaints just the region that changed (repaint(x,y,w,h)).
+// - Scene timing is a declarative Timeline (scenes + keyframe tracks, -Dtimeline=FILE to load one).
+// - Per-frame/per-pass profiling via FrameStats (-Dprofile.hud=true, -Dprofile.out=..., --profile).
+// - Resolution independent: scenes are authored in 600x600 scene units and scaled to any
+//   device size/aspect (java test2 --headless --size 1920x1080).
 // - No external assets.
 //
 // Scenes (approx timings; total ~7.4s):
@@ -19,6 +31,9 @@
 //
 // Compile & run:
 //   javac test2.java && java test2
+//   java test2 --headless --format png --out frames   (offline, no display; see OfflineRenderer)
+//   java test2 --self-check   (banded engines over ring slots, and the double-buffered panel path,
+//                              against one full-frame engine)
 //
 // Note: Dialog is represented with speech bubbles (three dots) to avoid font APIs.
 //       Curves appear in arms/hands (Bezier), door arc accent, and bubble tails.
@@ -27,9 +42,23 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.image.*;
 import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
 
 public class test2 {
+    // Headless renderer (offline renders, RenderFarm workers, RasterBench)
+    static final OfflineRenderer.Factory RENDERER = AnimRenderer::new;
+
     public static void main(String[] args) {
+        if (OfflineRenderer.isHeadless(args)) {
+            OfflineRenderer.run(args, RENDERER);
+            return;
+        }
+        if (Arrays.asList(args).contains("--self-check")) {
+            AnimRenderer.selfCheck();
+            return;
+        }
         SwingUtilities.invokeLater(() -> {
             JFrame f = new JFrame("WHAT IF I REBORNED - Java2D");
             f.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -42,15 +71,203 @@ public class test2 {
             new Thread(p).start();
         });
     }
+
+    // RasterBench hook: AnimEngine is an auxiliary class of this file, which other files must not
+    // name, so the benchmarks get one operation per primitive from here, drawing into pix (w x h)
+    // at primitive size `size` (device pixels).
+    static void benchPrimitives(Map<String, RasterBench.Op> ops, int[] pix, int w, int h, int size) {
+        AnimEngine a = new AnimEngine(pix, w, h, 0, h);
+        int cx = w / 2, cy = h / 2, r = size / 2;
+        ops.put("test2.line", i -> a.lineD(cx - r, cy - r / 3, cx + r, cy + r / 3, 0xFF141414));
+        ops.put("test2.circle", i -> a.circleD(cx, cy, r, 0xFF141414));
+        ops.put("test2.ellipse", i -> a.ellipseD(cx, cy, r, r * 2 / 3, 0xFF141414));
+        ops.put("test2.qBezier", i -> a.qBezierD(cx - r, cy, cx, cy - 2 * r, cx + r, cy, 0xFF141414));
+    }
 }
 
 class AnimPanel extends JPanel implements Runnable {
+    private final AnimRenderer frames; // renders off the EDT into its FrameRing
+    private final boolean hud = FrameStats.hudEnabled();
+    private final Presenter screen = new Presenter(this, "test2"); // VolatileImage back surface: -Dpresent=volatile|software
+    private final FrameScheduler scheduler; // paces run(): -Dframe.rate, -Dframe.policy
+
+    public AnimPanel(int w, int h) { this(w, h, BandRenderer.defaultThreads()); }
+
+    public AnimPanel(int w, int h, int threads) {
+        setPreferredSize(new Dimension(w, h));
+        frames = new AnimRenderer(w, h, threads);
+        scheduler = FrameScheduler.fromProperties(60, (i, t) -> present(frames.renderPaced(t)));
+        frames.stats().exportOnExit();
+    }
+
+    @Override protected void paintComponent(Graphics g){
+        // the dirty rectangle goes up into the back surface, the screen gets a copy of it
+        frames.stats().blit(screen.present(g, (sg, clip) -> sg.drawImage(frames.front(clip), 0, 0, null)));
+        if(hud) frames.stats().drawHud((Graphics2D) g);
+    }
+
+    // Repaint only what changed (the whole panel while the HUD is on).
+    private void present(DirtyRect r){
+        if(hud) repaint();
+        else if(!r.isEmpty()) repaint(r.x0, r.y0, r.width(), r.height());
+    }
+
+    @Override public void run(){ scheduler.run(); } // t = seconds since start
+}
+
+// Band-parallel AnimEngines rendering into a FrameRing, with per-frame timings. AnimPanel shows
+// its frames; offline renders and RenderFarm workers use it on its own (no Swing, no scheduler,
+// no exit hooks).
+class AnimRenderer implements OfflineRenderer.Scene {
     private final int W, H;
-    private final BufferedImage canvas;
-    private final int[] pix; // ARGB int buffer
+    private final FrameRing ring; // opaque back buffers handed to the EDT: -Dframe.buffers=2|3, -Dframe.format
+    private final AnimEngine[] engines;
+    private final BandRenderer raster; // band-parallel AnimEngines over the back buffer
+    private final FrameStats stats;
+    private final long[] passes = new long[FrameStats.PASSES.length];
+    private final DirtyRect frameChange; // union of the bands' changes since the previous frame
 
-    private volatile boolean running = true;
-    private long t0;
+    AnimRenderer(int w, int h, int threads) { this(w, h, threads, FrameRing.defaultBuffers()); }
+
+    AnimRenderer(int w, int h, int threads, int buffers) {
+        this.W = w; this.H = h;
+        ring = new FrameRing(W, H, buffers);
+        frameChange = new DirtyRect(0, 0, W, H);
+        int[] rows = BandRenderer.split(H, threads);
+        engines = new AnimEngine[rows.length - 1];
+        for(int i=0;i<engines.length;i++) engines[i] = new AnimEngine(null, W, H, rows[i], rows[i+1]);
+        raster = new BandRenderer(engines, threads);
+        stats = new FrameStats(FrameScheduler.rate(60));
+    }
+
+    // Scheduler thread: render the frame due at t and hand it to the EDT; returns what changed.
+    DirtyRect renderPaced(double t){
+        renderTimed(t, true);
+        return ring.publish(frameChange);
+    }
+
+    // EDT: the frame to show for a repaint of clip.
+    BufferedImage front(Rectangle clip){ return ring.present(clip); }
+
+    // Render one frame into the ring's back buffer and record its timings; per-pass CPU time is
+    // summed over all bands. Waiting for a free buffer (double buffering) is not counted. Only
+    // frames paced by the scheduler count towards dropped frames and jitter.
+    private void renderTimed(double t, boolean paced){
+        int[] pix = ring.acquire();
+        for(AnimEngine e : engines) e.target(pix, ring.backIndex());
+        long start = System.nanoTime();
+        raster.render(t);
+        long took = System.nanoTime() - start;
+        frameChange.clear();
+        for(AnimEngine e : engines) frameChange.add(e.changed());
+        Arrays.fill(passes, 0);
+        for(AnimEngine e : engines) e.drainPasses(passes);
+        String scene = AnimEngine.TIMELINE.sceneAt(t);
+        if(paced) stats.frame(scene, start, took, passes);
+        else stats.frame(scene, took, passes);
+    }
+
+    // Offline rendering (fixed timestep, no window)
+    @Override public int frameWidth(){ return W; }
+    @Override public int frameHeight(){ return H; }
+    @Override public double duration(){ return AnimEngine.TIMELINE.duration(); }
+    @Override public BufferedImage renderFrame(double t){ renderTimed(t, false); return ring.backImage(); }
+    @Override public FrameStats stats(){ return stats; }
+
+    // Self-check (java test2 --self-check): four band engines drawing into random ring slots must
+    // match one full-frame engine drawing into a single buffer, frame for frame. Band seams and
+    // per-slot state (dirty rectangles, layers) leaking between buffers show up as a differing pixel.
+    static void selfCheck(){
+        int W = 800, H = 600, B = 4, N = 480;
+        int[][] slots = new int[3][W * H];
+        int[] want = new int[W * H];
+        AnimEngine[] bands = new AnimEngine[B];
+        for(int b = 0; b < B; b++) bands[b] = new AnimEngine(null, W, H, b * H / B, (b + 1) * H / B);
+        AnimEngine ref = new AnimEngine(null, W, H, 0, H);
+        ref.target(want, 0);
+        Random rnd = new Random(7);
+        double dur = AnimEngine.TIMELINE.duration();
+        for(int i = 0; i < N; i++){
+            double t = i * dur / N;
+            int s = rnd.nextInt(slots.length);
+            for(AnimEngine e : bands){ e.target(slots[s], s); e.render(t); }
+            ref.render(t);
+            int k = Arrays.mismatch(want, slots[s]);
+            if(k >= 0) throw new AssertionError(String.format(Locale.ROOT, "frame %d (t=%.3f, slot %d) differs at %d,%d: %08x, expected %08x",
+                    i, t, s, k % W, k / W, slots[s][k], want[k]));
+        }
+        System.out.printf(Locale.ROOT, "test2: %d frames at %dx%d, %d bands over %d ring slots match one full-frame engine%n", N, W, H, B, slots.length);
+
+        // a stalled renderer hangs instead of failing, so the paced run gets a deadline
+        Throwable[] failed = new Throwable[1];
+        Thread paced = new Thread(() -> {
+            try { pacedCheck(W, H, N); } catch(Throwable e){ failed[0] = e; }
+        }, "self-check paced");
+        paced.setDaemon(true);
+        paced.start();
+        try { paced.join(60_000); } catch(InterruptedException e){ Thread.currentThread().interrupt(); }
+        if(paced.isAlive()) throw new AssertionError("double-buffered renderer stalled: a published frame was never repainted");
+        if(failed[0] instanceof Error) throw (Error) failed[0];
+        if(failed[0] != null) throw new IllegalStateException(failed[0]);
+        System.out.printf(Locale.ROOT, "test2: %d double-buffered frames, repainted by their changed regions only, match too%n", N);
+    }
+
+    // The panel's path with double buffering: the renderer waits in acquire() until the EDT has taken
+    // its last frame, so every published frame must come with a region to repaint. The screen,
+    // patched with just those regions, must match the full-frame engine.
+    private static void pacedCheck(int W, int H, int N){
+        AnimRenderer r = new AnimRenderer(W, H, 1, 2);
+        AnimEngine ref = new AnimEngine(null, W, H, 0, H);
+        int[] want = new int[W * H], screen = new int[W * H];
+        ref.target(want, 0);
+        double dur = AnimEngine.TIMELINE.duration();
+        for(int i = 0; i < N; i++){
+            double t = i * dur / N;
+            DirtyRect c = r.renderPaced(t);
+            ref.render(t);
+            if(!c.isEmpty()){
+                BufferedImage img = r.front(new Rectangle(c.x0, c.y0, c.width(), c.height()));
+                int[] front = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+                for(int y = c.y0; y < c.y1; y++) System.arraycopy(front, y * W + c.x0, screen, y * W + c.x0, c.width());
+            }
+            for(int k = 0; k < want.length; k++) if(((want[k] ^ screen[k]) & 0xffffff) != 0)
+                throw new AssertionError(String.format(Locale.ROOT, "double-buffered frame %d (t=%.3f) shows %06x at %d,%d, expected %06x",
+                        i, t, screen[k] & 0xffffff, k % W, k / W, want[k] & 0xffffff));
+        }
+    }
+}
+
+// Rasterizer + scenes for one horizontal band [y0, y1) of the shared pix[] buffer.
+// All plotting is clipped to the band, so several engines can fill one frame in parallel.
+class AnimEngine implements BandRenderer.Band {
+    // Scene timing (seconds): built-in timeline, -Dtimeline=FILE replaces it (see Timeline)
+    static final Timeline TIMELINE = Timeline.fromProperties(new Timeline(true)
+            .scene("exterior", 1.0).scene("black", 1.6).scene("hands", 2.6).scene("situp", 3.8)
+            .scene("door", 5.0).scene("talk", 6.2).scene("jump", 7.4)
+            .key("door.angle", 3.8, 0).key("door.angle", 5.0, Math.toRadians(70))) // opens in scene 5, stays open
+            .requireScenes("exterior", "black", "hands", "situp", "door", "talk", "jump");
+    private final Timeline.Track doorAngle = TIMELINE.track("door.angle");
+
+    private final int W, H;
+    private int[] pix; // ARGB frame buffer being drawn (shared by all bands, see target)
+    private final int y0, y1; // rows owned by this band
+
+    // Scene space -> device space. Scenes are authored in SCENE x SCENE units; the square is
+    // scaled uniformly to fit the device and centered. All drawing primitives below take scene
+    // units; the *D variants work in device pixels.
+    static final int SCENE = 600;
+    private final double scale, ox, oy;
+    private final LayerCache layers; // static backgrounds (hospital exterior, room, black) of this band
+
+    // Dirty rectangles. `drawn` is what this frame drew over its static layer. For each ring
+    // buffer the engine remembers the layer it holds and what was drawn over it, so the next
+    // frame in that buffer restores only that region. `changed` is the band's difference to the
+    // previous frame (the region to repaint).
+    private int slot;
+    private String layer, lastLayer;
+    private final DirtyRect drawn, lastDrawn, changed;
+    private final String[] slotLayer = new String[FrameRing.MAX_BUFFERS];
+    private final DirtyRect[] slotDrawn = new DirtyRect[FrameRing.MAX_BUFFERS];
 
     // Colors
     private static int rgb(int r,int g,int b){return 0xFF000000 | ((r&255)<<16)|((g&255)<<8)|(b&255);}    
@@ -66,46 +283,45 @@ class AnimPanel extends JPanel implements Runnable {
     private final int COL_HERO = rgb(20,20,20);
     private final int COL_BUBBLE = rgb(250,250,250);
 
-    public AnimPanel(int w, int h) {
-        this.W = w; this.H = h;
-        setPreferredSize(new Dimension(W, H));
-        canvas = new BufferedImage(W, H, BufferedImage.TYPE_INT_ARGB);
-        pix = ((DataBufferInt) canvas.getRaster().getDataBuffer()).getData();
+    AnimEngine(int[] pix, int w, int h, int y0, int y1) {
+        this.pix = pix; this.W = w; this.H = h;
+        this.y0 = y0; this.y1 = y1;
+        scale = Math.min(W, H) / (double) SCENE;
+        ox = (W - SCENE * scale) / 2;
+        oy = (H - SCENE * scale) / 2;
+        layers = new LayerCache(W, y0, y1);
+        drawn = new DirtyRect(0, y0, W, y1); lastDrawn = new DirtyRect(0, y0, W, y1); changed = new DirtyRect(0, y0, W, y1);
+        for(int i = 0; i < slotDrawn.length; i++) slotDrawn[i] = new DirtyRect(0, y0, W, y1);
     }
 
-    @Override public void addNotify(){ super.addNotify(); t0 = System.nanoTime(); }
+    // Draw into ring buffer `slot` (same size) from the next frame on.
+    void target(int[] pix, int slot){ this.pix = pix; this.slot = slot; }
 
-    @Override protected void paintComponent(Graphics g){
-        g.drawImage(canvas, 0, 0, null);
-    }
+    // Band region that differs from the previous frame (valid after render).
+    DirtyRect changed(){ return changed; }
 
-    @Override public void run(){
-        final double fps = 60.0;
-        final long frameNanos = (long)(1_000_000_000L / fps);
-        long last = System.nanoTime();
-        while(running){
-            long now = System.nanoTime();
-            if(now - last >= frameNanos){
-                double t = (now - t0) / 1e9; // seconds since start
-                render(t);
-                repaint();
-                last = now;
-            } else {
-                try { Thread.sleep(1); } catch(Exception ignore){}
-            }
-        }
-    }
+    private int X(double x){ return (int)Math.round(ox + x*scale); }
+    private int Y(double y){ return (int)Math.round(oy + y*scale); }
+    private int S(double v){ return (int)Math.round(v*scale); }
 
     // ========================= Low-level Pixel API =========================
-    private void clear(int color){ Arrays.fill(pix, color); }
+    // The *D primitives are package-private so RasterBench can measure them.
+    private void clear(int color){ Arrays.fill(pix, y0*W, y1*W, color); drawn.full(); }
 
     private void pset(int x, int y, int color){
-        if((x|y) < 0 || x >= W || y >= H) return;
+        if(x < 0 || y < y0 || x >= W || y >= y1) return;
         pix[y*W + x] = color;
     }
 
-    // Bresenham line (all octants)
-    private void line(int x0,int y0,int x1,int y1,int color){
+    // true if rows [ya, yb] (any order) miss this band entirely
+    private boolean outside(int ya, int yb){ return Math.max(ya, yb) < y0 || Math.min(ya, yb) >= y1; }
+
+    private void line(int x0,int y0,int x1,int y1,int color){ lineD(X(x0), Y(y0), X(x1), Y(y1), color); }
+
+    // Bresenham line (all octants), device pixels
+    void lineD(int x0,int y0,int x1,int y1,int color){
+        if(outside(y0, y1)) return;
+        drawn.add(x0, y0, x1, y1);
         int dx = Math.abs(x1-x0), dy = Math.abs(y1-y0);
         int sx = x0 < x1 ? 1 : -1;
         int sy = y0 < y1 ? 1 : -1;
@@ -120,8 +336,12 @@ class AnimPanel extends JPanel implements Runnable {
         }
     }
 
-    // Midpoint Circle
-    private void circle(int cx,int cy,int r,int color){
+    private void circle(int cx,int cy,int r,int color){ circleD(X(cx), Y(cy), S(r), color); }
+
+    // Midpoint Circle, device pixels
+    void circleD(int cx,int cy,int r,int color){
+        if(outside(cy - r, cy + r)) return;
+        drawn.add(cx - r, cy - r, cx + r, cy + r);
         int x=0, y=r; int d = 1-r;
         while(x <= y){
             plot8(cx,cy,x,y,color);
@@ -137,8 +357,12 @@ class AnimPanel extends JPanel implements Runnable {
         pset(cx+y, cy-x, color); pset(cx-y, cy-x, color);
     }
 
-    // Midpoint Ellipse
-    private void ellipse(int xc,int yc,int rx,int ry,int color){
+    private void ellipse(int xc,int yc,int rx,int ry,int color){ ellipseD(X(xc), Y(yc), S(rx), S(ry), color); }
+
+    // Midpoint Ellipse, device pixels
+    void ellipseD(int xc,int yc,int rx,int ry,int color){
+        if(outside(yc - ry, yc + ry)) return;
+        drawn.add(xc - rx, yc - ry, xc + rx, yc + ry);
         long rx2 = 1L*rx*rx, ry2 = 1L*ry*ry;
         long x=0, y=ry;
         long px = 0; long py = 2*rx2*y;
@@ -164,7 +388,10 @@ class AnimPanel extends JPanel implements Runnable {
 
     // Quadratic Bezier (De Casteljau, adaptive step by flatness approx)
     private void qBezier(int x0,int y0,int x1,int y1,int x2,int y2,int color){
-        // estimate length for steps
+        qBezierD(X(x0), Y(y0), X(x1), Y(y1), X(x2), Y(y2), color);
+    }
+    void qBezierD(int x0,int y0,int x1,int y1,int x2,int y2,int color){
+        // estimate length for steps (device pixels, so finer canvases get more segments)
         double len = Math.hypot(x1-x0, y1-y0) + Math.hypot(x2-x1, y2-y1);
         int steps = Math.max(8, (int)(len/6));
         int px = x0, py = y0;
@@ -174,7 +401,7 @@ class AnimPanel extends JPanel implements Runnable {
             double x = a*a*x0 + 2*a*b*x1 + b*b*x2;
             double y = a*a*y0 + 2*a*b*y1 + b*b*y2;
             int xi = (int)Math.round(x), yi = (int)Math.round(y);
-            line(px,py,xi,yi,color);
+            lineD(px,py,xi,yi,color);
             px=xi; py=yi;
         }
     }
@@ -193,11 +420,37 @@ class AnimPanel extends JPanel implements Runnable {
         for(int r=1;r<rows;r++) line(x, y + r*h/rows, x+w, y + r*h/rows, color);
     }
 
+    // Start the frame on static layer `key`: restores only what the last frame in this buffer drew
+    // over the same layer, else the whole band. False on a cache miss (the caller draws and stores it).
+    private boolean useLayer(String key){
+        layer = key;
+        if(key.equals(slotLayer[slot]) && layers.restore(key, pix, slotDrawn[slot])) return true;
+        return layers.restore(key, pix);
+    }
+
+    // End of the static layer: everything drawn from here on is dirty.
+    private void backgroundDone(){ pass(FrameStats.BACKGROUND); drawn.clear(); }
+
+    private void finishFrame(){
+        changed.set(drawn);
+        if(layer != null && layer.equals(lastLayer)) changed.add(lastDrawn); else changed.full();
+        lastLayer = layer; lastDrawn.set(drawn);
+        slotLayer[slot] = layer; slotDrawn[slot].set(drawn);
+    }
+
+    private void blackBackground(){
+        if(useLayer("black")) return;
+        clear(COL_BLACK);
+        layers.store("black", pix);
+    }
+
+    // static layer: drawn once per band, then restored from the LayerCache
     private void hospitalExterior(double t){
+        if(useLayer("exterior")) return;
         // sky
         clear(COL_BG_SKY);
         // ground line
-        line(0, 500, W, 500, COL_LINE);
+        lineD(0, Y(500), W, Y(500), COL_LINE); // full device width
         // hospital body (outline boxes)
         rectOutline(120, 220, 360, 260, COL_LINE);
         // entrance
@@ -216,12 +469,15 @@ class AnimPanel extends JPanel implements Runnable {
         line(300,260-15,300,260+15,COL_ACCENT);
         // simple title banner using lines
         rectOutline(220, 320, 160, 20, COL_LINE);
+        layers.store("exterior", pix);
     }
 
+    // static layer: drawn once per band, then restored from the LayerCache
     private void roomBackground(){
+        if(useLayer("room")) return;
         // wall + floor horizon
         clear(rgb(245,245,248));
-        line(0, 420, W, 420, COL_LINE);
+        lineD(0, Y(420), W, Y(420), COL_LINE); // full device width
         // window on wall (left)
         windowGrid(40, 60, 150, 120, 2, 2, COL_LINE);
         // bed frame
@@ -231,6 +487,7 @@ class AnimPanel extends JPanel implements Runnable {
         line(510, 240, 510, 420, COL_LINE);
         line(480, 240, 540, 240, COL_LINE);
         circle(510, 430, 6, COL_LINE);
+        layers.store("room", pix);
     }
 
     private void drawStickPerson(int cx,int cy,double armLift,double sit,double scale,int color){
@@ -296,65 +553,87 @@ class AnimPanel extends JPanel implements Runnable {
         qBezier(ax0,ay0, ax1,ay1, ax2,ay2, COL_LINE);
     }
 
-    private void render(double t){
-        // Scene timing (seconds)
-        double t1=1.0, t2=1.6, t3=2.6, t4=3.8, t5=5.0, t6=6.2, t7=7.4;
-        if(t > t7) t = t7; // clamp end
-
-        if(t <= t1){
-            // 1) Exterior hospital
-            hospitalExterior(t);
-        } else if(t <= t2){
-            // 2) Cut to black with bubble
-            clear(COL_BLACK);
-            // small bubble implying "ที่นี่ที่ไหนเนี่ย"
-            speechBubble(200, 380, 200, 80, -40, 30);
-        } else if(t <= t3){
-            // 3) Fade in room + hands lifting (armLift anim)
-            roomBackground();
-            double u = (t - t2) / (t3 - t2); // 0..1
-            int armLift = (int)(20*u*u*30/20.0);
-            // hero seated low, looking at hands
-            drawStickPerson(330, 340, armLift, 0.0, 1.2, COL_HERO);
-        } else if(t <= t4){
-            // 4) Sit up movement
-            roomBackground();
-            double u = (t - t3) / (t4 - t3);
-            drawStickPerson(330, 340 - (int)(15*u), 10, u, 1.2, COL_HERO);
-        } else if(t <= t5){
-            // 5) Door opens + doctor enters
-            roomBackground();
-            double u = (t - t4) / (t5 - t4); // 0..1
-            openingDoor(u * Math.toRadians(70));
-            // doctor walks from right -> bedside
-            int dx = (int)(u * 220);
-            drawStickPerson(520 - dx, 340, 5, 0.0, 1.0, COL_DOCTOR);
-        } else if(t <= t6){
-            // 6) Conversation bubbles
-            roomBackground();
-            openingDoor(Math.toRadians(70));
-            drawStickPerson(300, 325, 6, 1.0, 1.2, COL_HERO);
-            drawStickPerson(320, 340, 5, 0.0, 1.0, COL_DOCTOR);
-            // bubbles (doctor and hero)
-            speechBubble(340, 230, 180, 70, -30, 30); // doctor speaks
-            speechBubble(180, 260, 200, 80,  20, 40); // hero replies
-            speechBubble(340, 230, 180, 70, -30, 30); // doctor again
-        } else {
-            // 7) Shock -> run to window -> jump silhouette -> cut to black
-            double u = (t - t6) / (t7 - t6); // 0..1
-            if(u < 0.6){
+    // Per-pass timing (read and reset by the panel after each frame)
+    private final long[] passNanos = new long[FrameStats.PASSES.length];
+    private long passStart;
+    private void pass(int id){ long now = System.nanoTime(); passNanos[id] += now - passStart; passStart = now; }
+    void drainPasses(long[] sum){ for(int i = 0; i < sum.length; i++){ sum[i] += passNanos[i]; passNanos[i] = 0; } }
+
+    @Override public void render(double t){
+        passStart = System.nanoTime();
+        layer = null;
+        int sc = TIMELINE.scene(t);
+        double u = TIMELINE.progress(sc, t); // 0..1 through the scene (clamped past the end)
+
+        switch(TIMELINE.name(sc)){
+            case "exterior":
+                // 1) Exterior hospital
+                hospitalExterior(t);
+                backgroundDone();
+                break;
+            case "black":
+                // 2) Cut to black with bubble
+                blackBackground();
+                backgroundDone();
+                // small bubble implying "ที่นี่ที่ไหนเนี่ย"
+                speechBubble(200, 380, 200, 80, -40, 30);
+                break;
+            case "hands": {
+                // 3) Fade in room + hands lifting (armLift anim)
                 roomBackground();
-                openingDoor(Math.toRadians(70));
-                // run left to window (parabolic arc toward window)
-                int x = (int)(300 - 300*u*1.2);
-                int y = 340 - (int)(120 * (u*u));
-                drawStickPerson(x, y, 0, 0.0, 1.1, COL_HERO);
-                // faint motion trail using circles (midpoint)
-                circle(x-20, y-30, 8, rgb(180,180,180));
-            } else {
-                // cut to black
-                clear(COL_BLACK);
+                backgroundDone();
+                int armLift = (int)(20*u*u*30/20.0);
+                // hero seated low, looking at hands
+                drawStickPerson(330, 340, armLift, 0.0, 1.2, COL_HERO);
+                break;
             }
+            case "situp":
+                // 4) Sit up movement
+                roomBackground();
+                backgroundDone();
+                drawStickPerson(330, 340 - (int)(15*u), 10, u, 1.2, COL_HERO);
+                break;
+            case "door": {
+                // 5) Door opens + doctor enters
+                roomBackground();
+                backgroundDone();
+                openingDoor(doorAngle.value(t));
+                // doctor walks from right -> bedside
+                int dx = (int)(u * 220);
+                drawStickPerson(520 - dx, 340, 5, 0.0, 1.0, COL_DOCTOR);
+                break;
+            }
+            case "talk":
+                // 6) Conversation bubbles
+                roomBackground();
+                backgroundDone();
+                openingDoor(doorAngle.value(t));
+                drawStickPerson(300, 325, 6, 1.0, 1.2, COL_HERO);
+                drawStickPerson(320, 340, 5, 0.0, 1.0, COL_DOCTOR);
+                // bubbles (doctor and hero)
+                speechBubble(340, 230, 180, 70, -30, 30); // doctor speaks
+                speechBubble(180, 260, 200, 80,  20, 40); // hero replies
+                speechBubble(340, 230, 180, 70, -30, 30); // doctor again
+                break;
+            default:
+                // 7) Shock -> run to window -> jump silhouette -> cut to black
+                if(u < 0.6){
+                    roomBackground();
+                    backgroundDone();
+                    openingDoor(doorAngle.value(t));
+                    // run left to window (parabolic arc toward window)
+                    int x = (int)(300 - 300*u*1.2);
+                    int y = 340 - (int)(120 * (u*u));
+                    drawStickPerson(x, y, 0, 0.0, 1.1, COL_HERO);
+                    // faint motion trail using circles (midpoint)
+                    circle(x-20, y-30, 8, rgb(180,180,180));
+                } else {
+                    // cut to black
+                    blackBackground();
+                    backgroundDone();
+                }
         }
+        finishFrame();
+        pass(FrameStats.PRIMITIVES);
     }
 }
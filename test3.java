@@ -5,10 +5,32 @@
 // - Background no longer shakes on impact (shake applied only to character/vehicle)
 // - Slime scene no longer "jitters":
 //     * filmGrain is not applied in slime scene
-//     * rx/ry are temporally smoothed to avoid pixel rounding shimmer
+//     * rx/ry are temporally smoothed to avoid pixel rounding shimmer (an analytic low-pass,
+//       a pure function of time, so any frame renders the same on its own; see sceneSlime)
+// - Resolution independent: scenes are authored in 600x600 scene units and mapped to any
+//   device size/aspect (java test3 --headless --size 1920x1080)
+// - Filled primitives blend whole spans at once (SpanBlend) instead of pblend per pixel
+// - Static backgrounds (street backdrop, sea gradient) are drawn once per band and restored
+//   from the cache each frame (LayerCache, -Dlayer.cache=false to disable)
+// - Characters (stickman, truck and its ghosts, slime) are a retained scene graph (SceneGraph):
+//   built once, moved/reshaped per frame, culled by their cached bounds (off-screen or off-band)
+// - Dirty rectangles: a bounds-only pass finds what a frame draws over its static layer; only
+//   that region (plus what the buffer's previous frame drew) is restored, vignetted and grained,
+//   and the panel repaints just the region that changed (repaint(x,y,w,h))
+// - Film grain is a precomputed noise tile read at a per-frame offset (FilmGrain): it moves every
+//   frame, so grained street frames change as a whole (-Dgrain.animate=false: one still pattern)
+// - Scene timing is a declarative Timeline (scenes + keyframe tracks, -Dtimeline=FILE to load one)
+// - Per-frame/per-pass profiling via FrameStats (-Dprofile.hud=true, -Dprofile.out=..., --profile)
+// - Band-parallel rasterizer: PixelEngine renders one horizontal band, BandRenderer runs
+//   the bands on a ForkJoinPool (-Draster.threads=N, default all cores)
+// - Frames are drawn into a ring of back buffers (FrameRing); the EDT blits the newest finished
+//   one, so there is no tearing and rendering overlaps presentation (-Dframe.buffers=2|3)
 //
 // Compile & run:
 //   javac test3.java && java test3
+//   java test3 --headless --format png --out frames   (offline, no display; see OfflineRenderer)
+//   java test3 --self-check   (banded engines over ring slots, the double-buffered panel path and
+//                              a vignette change, against one full-frame engine)
 
 import javax.swing.*;
 import java.awt.*;
@@ -16,7 +38,12 @@ import java.awt.image.*;
 import java.util.*;
 
 public class test3 {
+    // Headless renderer (offline renders, RenderFarm workers, RasterBench)
+    static final OfflineRenderer.Factory RENDERER = PixelRenderer::new;
+
     public static void main(String[] args){
+        if(OfflineRenderer.isHeadless(args)){ OfflineRenderer.run(args, RENDERER); return; }
+        if(Arrays.asList(args).contains("--self-check")){ PixelRenderer.selfCheck(); return; }
         SwingUtilities.invokeLater(() -> {
             JFrame f = new JFrame("WHAT IF I REBORNED — Slime (Pixel Engine)");
             f.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -28,70 +55,222 @@ public class test3 {
             new Thread(p).start();
         });
     }
+
+    // --- RasterBench hooks: the rasterizer classes are auxiliary classes of this file, which other
+    // files must not name, so the benchmarks reach them through RENDERER and these ---
+    static SceneGraph.Canvas benchCanvas(int[] pix,int w,int h){ return new PixelCanvas(pix,w,h,0,h); }
+
+    // One operation per primitive, drawing into pix (w x h) at primitive size `size` (device pixels)
+    static void benchPrimitives(Map<String,RasterBench.Op> ops,int[] pix,int w,int h,int size){
+        PixelEngine p=new PixelEngine(pix,w,h,0,h); int cx=w/2, cy=h/2, r=size/2;
+        int[] xs=new int[5], ys=new int[5], sx=new int[5], sy=new int[5];
+        for(int k=0;k<5;k++){ // convex pentagon of radius r, and a pentagram in 24.8 fixed point
+            xs[k]=cx+(int)(r*Math.cos(k*2*Math.PI/5)); ys[k]=cy+(int)(r*Math.sin(k*2*Math.PI/5));
+            sx[k]=(int)((cx+r*Math.cos(k*4*Math.PI/5))*256); sy[k]=(int)((cy+r*Math.sin(k*4*Math.PI/5))*256);
+        }
+        ops.put("test3.pblend", i -> { for(int y=cy-r;y<cy+r;y++) for(int x=cx-r;x<cx+r;x++) p.pblend(x,y,180,250,200,120); });
+        ops.put("test3.line", i -> p.line(cx-r,cy-r/3,cx+r,cy+r/3,235,235,235,255));
+        ops.put("test3.thickLine", i -> p.thickLine(cx-r,cy-r/3,cx+r,cy+r/3,2,235,235,235,255));
+        ops.put("test3.circle", i -> p.circle(cx,cy,r,180,255,220,180));
+        ops.put("test3.fillCircle", i -> p.fillCircle(cx,cy,r,40,40,40,200));
+        ops.put("test3.ellipse", i -> p.ellipse(cx,cy,r,r*2/3,180,255,220,180));
+        ops.put("test3.fillEllipse", i -> p.fillEllipse(cx,cy,r,r*2/3,30,40,45,255));
+        ops.put("test3.fillEllipsePulse", i -> p.fillEllipse(cx,cy,r+(i&7),(r+(i&7))*2/3,30,40,45,255));
+        ops.put("test3.slimeBody", i -> p.slimeBody(cx,cy,r,r*5/6));
+        ops.put("test3.fillPolygon", i -> p.fillPolygon(xs,ys,5,70,130,180,200));
+        ops.put("test3.fillStarNonZero", i -> p.fillPolygon(sx,sy,5,8,PolygonFiller.Rule.NON_ZERO,70,130,180,200));
+        ops.put("test3.qBezier", i -> p.qBezier(cx-r,cy,cx,cy-2*r,cx+r,cy,40,70,45,255));
+    }
 }
 
 class PixelPanel extends JPanel implements Runnable {
-    private final int W,H; private final BufferedImage canvas; private final int[] pix;
-    private volatile boolean running = true; private long t0;
-
-    // --- Timing (seconds) ---
-    private final double T1 = 2.0;   // street & truck hit
-    private final double T2 = 3.0;   // fade to black
-    private final double T3 = 8.0;   // slime world
-
-    // --- Slime smoothing state (to reduce shimmer) ---
-    private double rxSm = 130, rySm = 110;
-
-    public PixelPanel(int w,int h){
-        this.W=w; this.H=h; setPreferredSize(new Dimension(W,H));
-        canvas = new BufferedImage(W,H,BufferedImage.TYPE_INT_ARGB);
-        pix = ((DataBufferInt)canvas.getRaster().getDataBuffer()).getData();
-    }
-
-    @Override protected void paintComponent(Graphics g){ g.drawImage(canvas,0,0,null); }
-    @Override public void addNotify(){ super.addNotify(); t0 = System.nanoTime(); }
-
-    @Override public void run(){
-        final double fps = 60.0; final long step = (long)(1_000_000_000L/fps);
-        long last = System.nanoTime();
-        while(running){
-            long now = System.nanoTime();
-            if(now-last>=step){
-                double t = (now - t0)/1e9; render(t % T3); repaint(); last = now;
-            } else { try{Thread.sleep(1);}catch(Exception ignore){} }
+    private final PixelRenderer frames; // renders off the EDT into its FrameRing
+    private final FrameScheduler scheduler; // paces run(): -Dframe.rate, -Dframe.policy
+    private final boolean hud = FrameStats.hudEnabled();
+    private final Presenter screen = new Presenter(this,"test3"); // VolatileImage back surface: -Dpresent=volatile|software
+
+    public PixelPanel(int w,int h){ this(w,h,BandRenderer.defaultThreads()); }
+
+    public PixelPanel(int w,int h,int threads){
+        setPreferredSize(new Dimension(w,h));
+        frames = new PixelRenderer(w,h,threads);
+        scheduler = FrameScheduler.fromProperties(60, (i,t) -> present(frames.renderPaced(t)));
+        frames.stats().exportOnExit();
+    }
+
+    // Vignette look: strength = max darkening alpha at the corners (0..255), falloff = radial exponent
+    public void setVignette(double strength,double falloff){ frames.setVignette(strength,falloff); }
+
+    @Override protected void paintComponent(Graphics g){
+        frames.stats().blit(screen.present(g,(sg,clip) -> sg.drawImage(frames.front(clip),0,0,null)));
+        if(hud) frames.stats().drawHud((Graphics2D)g);
+    }
+
+    // Repaint only what changed (the whole panel while the HUD is on).
+    private void present(DirtyRect r){ if(hud) repaint(); else if(!r.isEmpty()) repaint(r.x0,r.y0,r.width(),r.height()); }
+
+    @Override public void run(){ scheduler.run(); }
+}
+
+// Band-parallel PixelEngines rendering into a FrameRing, with per-frame timings. PixelPanel shows
+// its frames; offline renders and RenderFarm workers use it on its own (no Swing, no scheduler,
+// no exit hooks).
+class PixelRenderer implements OfflineRenderer.Scene {
+    private final int W,H;
+    private final FrameRing ring; // back buffers handed to the EDT: -Dframe.buffers=2|3
+    private final DirtyRect frameChange; // union of the bands' changes since the previous frame
+    private final PixelEngine[] engines; private final BandRenderer raster; // band-parallel PixelEngines over pix
+    private final FrameStats stats; private final long[] passes = new long[FrameStats.PASSES.length];
+
+    PixelRenderer(int w,int h,int threads){ this(w,h,threads,FrameRing.defaultBuffers()); }
+
+    PixelRenderer(int w,int h,int threads,int buffers){
+        this.W=w; this.H=h;
+        ring = new FrameRing(W,H,buffers); frameChange = new DirtyRect(0,0,W,H);
+        int[] rows = BandRenderer.split(H, threads); engines = new PixelEngine[rows.length-1];
+        for(int i=0;i<engines.length;i++) engines[i] = new PixelEngine(null,W,H,rows[i],rows[i+1]);
+        raster = new BandRenderer(engines,threads);
+        stats = new FrameStats(FrameScheduler.rate(60));
+    }
+
+    void setVignette(double strength,double falloff){ for(PixelEngine e: engines) e.setVignette(strength,falloff); }
+
+    // Truck ghosts on/off; MotionBlur turns them off and blurs over the shutter interval instead
+    @Override public void motionGhosts(boolean on){ for(PixelEngine e: engines) e.ghosts=on; }
+
+    // Scheduler thread: render the frame due at t (looping) and hand it to the EDT; returns what changed.
+    DirtyRect renderPaced(double t){ renderTimed(t % PixelEngine.TIMELINE.duration(),true); return ring.publish(frameChange); }
+
+    // EDT: the frame to show for a repaint of clip.
+    BufferedImage front(Rectangle clip){ return ring.present(clip); }
+
+    // Render one frame into the ring's back buffer and record its timings; per-pass CPU time is
+    // summed over all bands. Waiting for a free buffer (double buffering) is not counted. Only
+    // frames paced by the scheduler count towards dropped frames and jitter.
+    private void renderTimed(double t,boolean paced){
+        int[] pix=ring.acquire(); for(PixelEngine e: engines) e.target(pix,ring.backIndex());
+        long start=System.nanoTime(); raster.render(t); long took=System.nanoTime()-start;
+        frameChange.clear(); for(PixelEngine e: engines) frameChange.add(e.changed());
+        Arrays.fill(passes,0); for(PixelEngine e: engines) e.drainPasses(passes);
+        String sc=PixelEngine.TIMELINE.sceneAt(t); if(paced) stats.frame(sc,start,took,passes); else stats.frame(sc,took,passes);
+    }
+
+    // --- Offline rendering (fixed timestep, no window) ---
+    @Override public int frameWidth(){ return W; }
+    @Override public int frameHeight(){ return H; }
+    @Override public double duration(){ return PixelEngine.TIMELINE.duration(); }
+    @Override public BufferedImage renderFrame(double t){ renderTimed(t % PixelEngine.TIMELINE.duration(),false); return ring.backImage(); }
+    @Override public FrameStats stats(){ return stats; }
+
+    // --- Self-check (java test3 --self-check) ---
+    // Four band engines drawing into random ring slots must match one full-frame engine drawing into
+    // a single buffer, frame for frame: band seams, and per-slot state (dirty rectangles, layers,
+    // sprites, grain) leaking from one buffer into another, both show up as a differing pixel.
+    static void selfCheck(){
+        int W=800,H=600,B=4,N=480; int[][] slots=new int[3][W*H]; int[] want=new int[W*H];
+        PixelEngine[] bands=new PixelEngine[B]; for(int b=0;b<B;b++) bands[b]=new PixelEngine(null,W,H,b*H/B,(b+1)*H/B);
+        PixelEngine ref=new PixelEngine(null,W,H,0,H); ref.target(want,0);
+        Random rnd=new Random(7); double dur=PixelEngine.TIMELINE.duration();
+        for(int i=0;i<N;i++){
+            double t=i*dur/N; int s=rnd.nextInt(slots.length);
+            for(PixelEngine e: bands){ e.target(slots[s],s); e.render(t); }
+            ref.render(t);
+            int k=Arrays.mismatch(want,slots[s]);
+            if(k>=0) throw new AssertionError(String.format(Locale.ROOT,"frame %d (t=%.3f, slot %d) differs at %d,%d: %08x, expected %08x",i,t,s,k%W,k/W,slots[s][k],want[k]));
+        }
+        System.out.printf(Locale.ROOT,"test3: %d frames at %dx%d, %d bands over %d ring slots match one full-frame engine%n",N,W,H,B,slots.length);
+
+        // a stalled renderer hangs instead of failing, so the paced run gets a deadline
+        Throwable[] failed=new Throwable[1];
+        Thread paced=new Thread(() -> { try { pacedCheck(W,H,N); } catch(Throwable e){ failed[0]=e; } },"self-check paced");
+        paced.setDaemon(true); paced.start();
+        try { paced.join(60_000); } catch(InterruptedException e){ Thread.currentThread().interrupt(); }
+        if(paced.isAlive()) throw new AssertionError("double-buffered renderer stalled: a published frame was never repainted");
+        if(failed[0] instanceof Error) throw (Error)failed[0]; if(failed[0]!=null) throw new IllegalStateException(failed[0]);
+        System.out.printf(Locale.ROOT,"test3: %d double-buffered frames, repainted by their changed regions only, match too%n",N);
+
+        // a vignette change reaches every cached layer: an engine that already cached its layers and
+        // fade source with the default vignette must then render like one built with the new look
+        PixelEngine before=new PixelEngine(null,W,H,0,H), after=new PixelEngine(null,W,H,0,H); before.target(slots[0],0); after.target(want,0);
+        after.setVignette(40,1.5);
+        for(int i=0;i<N;i++) before.render(i*dur/N);
+        before.setVignette(40,1.5);
+        for(int i=0;i<N;i++){
+            double t=i*dur/N; before.render(t); after.render(t);
+            int k=Arrays.mismatch(want,slots[0]);
+            if(k>=0) throw new AssertionError(String.format(Locale.ROOT,"frame %d (t=%.3f) after a vignette change differs at %d,%d: %08x, expected %08x",i,t,k%W,k/W,slots[0][k],want[k]));
         }
+        System.out.printf(Locale.ROOT,"test3: %d frames after a vignette change match an engine built with it%n",N);
     }
 
-    // ================= Pixel utils =================
-    private static int ARGB(int a,int r,int g,int b){return ((a&255)<<24)|((r&255)<<16)|((g&255)<<8)|(b&255);}    
-    private void clear(int col){ Arrays.fill(pix,col); }
-    private void pset(int x,int y,int col){ if((x|y)<0||x>=W||y>=H) return; pix[y*W+x]=col; }
+    // The panel's path with double buffering: the renderer waits in acquire() until the EDT has taken
+    // its last frame, so every published frame must come with a region to repaint. The screen, patched
+    // with just those regions, must match the full-frame engine.
+    private static void pacedCheck(int W,int H,int N){
+        PixelRenderer r=new PixelRenderer(W,H,1,2); PixelEngine ref=new PixelEngine(null,W,H,0,H);
+        int[] want=new int[W*H], screen=new int[W*H]; ref.target(want,0); double dur=PixelEngine.TIMELINE.duration();
+        for(int i=0;i<N;i++){
+            double t=i*dur/N; DirtyRect c=r.renderPaced(t); ref.render(t);
+            if(!c.isEmpty()){
+                int[] front=((DataBufferInt)r.front(new Rectangle(c.x0,c.y0,c.width(),c.height())).getRaster().getDataBuffer()).getData();
+                for(int y=c.y0;y<c.y1;y++) System.arraycopy(front,y*W+c.x0,screen,y*W+c.x0,c.width());
+            }
+            for(int k=0;k<want.length;k++) if(((want[k]^screen[k])&0xffffff)!=0)
+                throw new AssertionError(String.format(Locale.ROOT,"double-buffered frame %d (t=%.3f) shows %06x at %d,%d, expected %06x",i,t,screen[k]&0xffffff,k%W,k/W,want[k]&0xffffff));
+        }
+    }
+}
+
+// Rasterizer for one horizontal band [y0,y1) of an int[] ARGB buffer: device-pixel primitives,
+// each clipped to the band, so several canvases can fill one frame in parallel. PixelEngine draws
+// its scenes with it; on its own it is the light canvas sprites are rasterized into.
+class PixelCanvas implements SceneGraph.Canvas {
+    final int W,H; int[] pix; // buffer being drawn (PixelEngine retargets it per frame)
+    final int y0,y1; // rows owned by this band
+    boolean measuring; final DirtyRect drawn; // bounds-only pass: primitives add their boxes to drawn instead of drawing
 
-    private void pblend(int x,int y,int sr,int sg,int sb,int sa){
-        if((x|y)<0||x>=W||y>=H||sa<=0) return; int idx=y*W+x; int dst=pix[idx];
-        int da=(dst>>>24)&255, dr=(dst>>>16)&255, dg=(dst>>>8)&255, db=dst&255;
-        int a = sa + da*(255-sa)/255; // out alpha
-        // premult blend: out = src + dst*(1-as)
-        int r = (sr*sa + dr*(255-sa))/255;
-        int g = (sg*sa + dg*(255-sa))/255;
-        int b = (sb*sa + db*(255-sa))/255;
-        pix[idx]=ARGB(a,r,g,b);
+    PixelCanvas(int[] pix,int w,int h,int y0,int y1){ this.pix=pix; this.W=w; this.H=h; this.y0=y0; this.y1=y1; drawn=new DirtyRect(0,y0,W,y1); }
+
+    // ================= Pixel utils =================
+    static int ARGB(int a,int r,int g,int b){return ((a&255)<<24)|((r&255)<<16)|((g&255)<<8)|(b&255);}    
+    void clear(int col){ Arrays.fill(pix,y0*W,y1*W,col); }
+    void pset(int x,int y,int col){ if(x<0||y<y0||x>=W||y>=y1) return; pix[y*W+x]=col; }
+    // true if rows [ya,yb] (any order) miss this band entirely
+    boolean outside(int ya,int yb){ return Math.max(ya,yb)<y0 || Math.min(ya,yb)>=y1; }
+    // scene graph culling: does the inclusive device box touch this band?
+    @Override public boolean visible(int xa,int ya,int xb,int yb){ return xb>=0 && xa<W && yb>=y0 && ya<y1; }
+
+    void pblend(int x,int y,int sr,int sg,int sb,int sa){
+        if(x<0||y<y0||x>=W||y>=y1||sa<=0) return; int idx=y*W+x;
+        // premult blend: out = src*as + dst*(1-as), one multiply-add per channel pair (SpanBlend)
+        pix[idx]=SpanBlend.over(pix[idx],sr,sg,sb,sa);
     }
 
     // ================= Primitives =================
-    private void line(int x0,int y0,int x1,int y1,int r,int g,int b,int a){
+    // (package-private so RasterBench can measure them; device pixels)
+    // Scratch reused by every call, so drawing allocates nothing
+    private final PolygonFiller poly = new PolygonFiller();
+    private final EllipseSpans spans = new EllipseSpans(); // filled-ellipse row widths by radius
+
+    @Override public void line(int x0,int y0,int x1,int y1,int r,int g,int b,int a){
+        if(outside(y0,y1)) return;
+        if(measuring){ drawn.add(x0,y0,x1,y1); return; }
         int dx=Math.abs(x1-x0), dy=Math.abs(y1-y0); int sx=x0<x1?1:-1; int sy=y0<y1?1:-1; int err=dx-dy;
         int x=x0,y=y0; while(true){ pblend(x,y,r,g,b,a); if(x==x1&&y==y1)break; int e2=2*err; if(e2>-dy){err-=dy;x+=sx;} if(e2<dx){err+=dx;y+=sy;} }
     }
 
     // Thick line via small disc stamps (radius rr)
-    private void thickLine(int x0,int y0,int x1,int y1,int rr,int r,int g,int b,int a){
+    @Override public void thickLine(int x0,int y0,int x1,int y1,int rr,int r,int g,int b,int a){
+        if(Math.max(y0,y1)+rr<this.y0 || Math.min(y0,y1)-rr>=this.y1) return;
+        if(measuring){ drawn.add(Math.min(x0,x1)-rr,Math.min(y0,y1)-rr,Math.max(x0,x1)+rr,Math.max(y0,y1)+rr); return; }
         int dx=Math.abs(x1-x0), dy=Math.abs(y1-y0); int sx=x0<x1?1:-1; int sy=y0<y1?1:-1; int err=dx-dy; int x=x0,y=y0;
         while(true){ fillCircle(x,y,rr,r,g,b,a); if(x==x1&&y==y1)break; int e2=2*err; if(e2>-dy){err-=dy;x+=sx;} if(e2<dx){err+=dx;y+=sy;} }
     }
 
     // Midpoint circle (outline)
-    private void circle(int cx,int cy,int rr,int r,int g,int b,int a){
+    void circle(int cx,int cy,int rr,int r,int g,int b,int a){
+        if(outside(cy-rr,cy+rr)) return;
+        if(measuring){ drawn.add(cx-rr,cy-rr,cx+rr,cy+rr); return; }
         int x=0,y=rr; int d=1-rr; while(x<=y){ plot8(cx,cy,x,y,r,g,b,a); if(d<0){d+=2*x+3;} else {d+=2*(x-y)+5; y--;} x++; }
     }
     private void plot8(int cx,int cy,int x,int y,int r,int g,int b,int a){
@@ -99,13 +278,17 @@ class PixelPanel extends JPanel implements Runnable {
         pblend(cx+y,cy+x,r,g,b,a); pblend(cx-y,cy+x,r,g,b,a); pblend(cx+y,cy-x,r,g,b,a); pblend(cx-y,cy-x,r,g,b,a);
     }
     // Filled circle via horizontal spans
-    private void fillCircle(int cx,int cy,int rr,int r,int g,int b,int a){
+    @Override public void fillCircle(int cx,int cy,int rr,int r,int g,int b,int a){
+        if(outside(cy-rr,cy+rr)) return;
+        if(measuring){ drawn.add(cx-rr,cy-rr,cx+rr,cy+rr); return; }
         int x=0,y=rr; int d=1-rr; while(x<=y){ hspan(cx-x,cx+x,cy+y,r,g,b,a); hspan(cx-x,cx+x,cy-y,r,g,b,a); hspan(cx-y,cx+y,cy+x,r,g,b,a); hspan(cx-y,cx+y,cy-x,r,g,b,a); if(d<0){d+=2*x+3;}else{d+=2*(x-y)+5;y--;}x++; }
     }
-    private void hspan(int x1,int x2,int y,int r,int g,int b,int a){ if(y<0||y>=H) return; if(x1>x2){int t=x1;x1=x2;x2=t;} if(x2<0||x1>=W) return; x1=Math.max(0,x1); x2=Math.min(W-1,x2); for(int x=x1;x<=x2;x++) pblend(x,y,r,g,b,a); }
+    void hspan(int x1,int x2,int y,int r,int g,int b,int a){ if(y<y0||y>=y1) return; if(measuring){ drawn.add(x1,y,x2,y); return; } if(x1>x2){int t=x1;x1=x2;x2=t;} if(x2<0||x1>=W) return; x1=Math.max(0,x1); x2=Math.min(W-1,x2); SpanBlend.blend(pix, y*W+x1, y*W+x2+1, r,g,b,a); }
 
     // Midpoint ellipse (outline)
-    private void ellipse(int xc,int yc,int rx,int ry,int r,int g,int b,int a){
+    void ellipse(int xc,int yc,int rx,int ry,int r,int g,int b,int a){
+        if(outside(yc-ry,yc+ry)) return;
+        if(measuring){ drawn.add(xc-rx,yc-ry,xc+rx,yc+ry); return; }
         long rx2=1L*rx*rx, ry2=1L*ry*ry; long x=0,y=ry; long px=0, py=2*rx2*y; long p=Math.round(ry2 - rx2*ry + 0.25*rx2);
         while(px<py){ plot4(xc,yc,(int)x,(int)y,r,g,b,a); x++; px+=2*ry2; if(p<0){p+=ry2+px;}else{ y--; py-=2*rx2; p+=ry2+px-py; } }
         p=Math.round(ry2*(x+0.5)*(x+0.5)+rx2*(y-1)*(y-1)-rx2*ry2);
@@ -113,207 +296,384 @@ class PixelPanel extends JPanel implements Runnable {
     }
     private void plot4(int xc,int yc,int x,int y,int r,int g,int b,int a){ pblend(xc+x,yc+y,r,g,b,a); pblend(xc-x,yc+y,r,g,b,a); pblend(xc+x,yc-y,r,g,b,a); pblend(xc-x,yc-y,r,g,b,a); }
 
-    // Filled ellipse (analytic scanlines)
-    private void fillEllipse(int xc,int yc,int rx,int ry,int r,int g,int b,int a){
-        for(int yy=-ry; yy<=ry; yy++){
-            double t = 1.0 - (yy*yy)/(double)(ry*ry); if(t<0) continue; int xx=(int)Math.floor(rx*Math.sqrt(t)); hspan(xc-xx, xc+xx, yc+yy, r,g,b,a);
-        }
+    // Filled ellipse (row half-widths per radius, cached in EllipseSpans)
+    @Override public void fillEllipse(int xc,int yc,int rx,int ry,int r,int g,int b,int a){
+        if(measuring){ drawn.add(xc-rx,yc-ry,xc+rx,yc+ry); return; }
+        if(outside(yc-ry,yc+ry)) return;
+        int[] half = spans.half(rx,ry);
+        for(int yy=Math.max(-ry,y0-yc); yy<=Math.min(ry,y1-1-yc); yy++){ int xx=half[Math.abs(yy)]; hspan(xc-xx, xc+xx, yc+yy, r,g,b,a); }
     }
 
-    // Polygon fill (scanline)
-    private void fillPolygon(int[] xs,int[] ys,int n,int r,int g,int b,int a){
-        // compute bounds
-        int ymin=H-1,ymax=0; for(int i=0;i<n;i++){ ymin=Math.min(ymin,ys[i]); ymax=Math.max(ymax,ys[i]); }
-        ymin=Math.max(0,ymin); ymax=Math.min(H-1,ymax);
-        for(int y=ymin; y<=ymax; y++){
-            int m=0; int[] interX = new int[n];
-            for(int i=0;i<n;i++){
-                int j=(i+1)%n; int y0=ys[i], y1=ys[j]; int x0=xs[i], x1=xs[j];
-                if((y0<y && y1>=y) || (y1<y && y0>=y)){
-                    int x = x0 + (int)Math.round((double)(y - y0)*(x1 - x0)/(double)(y1 - y0));
-                    interX[m++]=x;
-                }
-            }
-            Arrays.sort(interX,0,m);
-            for(int k=0;k+1<m;k+=2){ hspan(interX[k], interX[k+1], y, r,g,b,a); }
+    // Polygon fill (active edge table, see PolygonFiller; even-odd rule, integer vertices)
+    @Override public void fillPolygon(int[] xs,int[] ys,int n,int r,int g,int b,int a){ fillPolygon(xs,ys,n,0,PolygonFiller.Rule.EVEN_ODD,r,g,b,a); }
+    // Polygon fill with a fill rule and sub-pixel vertices (fracBits fractional bits)
+    void fillPolygon(int[] xs,int[] ys,int n,int fracBits,PolygonFiller.Rule rule,int r,int g,int b,int a){
+        if(measuring){ // vertex hull, +-1 for rounding
+            int xa=Integer.MAX_VALUE, ya=Integer.MAX_VALUE, xb=Integer.MIN_VALUE, yb=Integer.MIN_VALUE;
+            for(int i=0;i<n;i++){ xa=Math.min(xa,xs[i]); xb=Math.max(xb,xs[i]); ya=Math.min(ya,ys[i]); yb=Math.max(yb,ys[i]); }
+            if(n>0) drawn.add((xa>>fracBits)-1,(ya>>fracBits)-1,(xb>>fracBits)+1,(yb>>fracBits)+1);
+            return;
         }
+        poly.fill(pix,W,y0,y1,xs,ys,n,fracBits,rule,r,g,b,a);
+    }
+
+    // Sprites (SceneGraph.Sprite): rasterize into a transparent bitmap with a full-height canvas (no
+    // scenes or caches); the blend math is premultiplied source-over, so the bitmap comes out
+    // premultiplied ARGB
+    @Override public SceneGraph.Canvas offscreen(int[] argb,int w,int h){ return new PixelCanvas(argb,w,h,0,h); }
+    @Override public void blit(int[] argb,int w,int h,int x,int y,int a){
+        if(outside(y,y+h-1)) return;
+        if(measuring){ drawn.add(x,y,x+w-1,y+h-1); return; }
+        int xa=Math.max(0,x), xb=Math.min(W,x+w); if(xa>=xb) return;
+        for(int yy=Math.max(y,y0), ye=Math.min(y+h,y1); yy<ye; yy++) SpanBlend.blit(pix, yy*W+xa, argb, (yy-y)*w+xa-x, xb-xa, a);
     }
 
     // Quadratic Bezier polyline
-    private void qBezier(int x0,int y0,int x1,int y1,int x2,int y2,int r,int g,int b,int a){
-        double len=Math.hypot(x1-x0,y1-y0)+Math.hypot(x2-x1,y2-y1); int steps=Math.max(12,(int)(len/6)); int px=x0,py=y0;
+    @Override public int curveSteps(double len){ return Math.max(12,(int)(len/6)); }
+    void qBezier(int x0,int y0,int x1,int y1,int x2,int y2,int r,int g,int b,int a){
+        if(Math.max(y0,Math.max(y1,y2))<this.y0 || Math.min(y0,Math.min(y1,y2))>=this.y1) return; // hull misses band
+        if(measuring){ drawn.add(Math.min(x0,Math.min(x1,x2)),Math.min(y0,Math.min(y1,y2)),Math.max(x0,Math.max(x1,x2)),Math.max(y0,Math.max(y1,y2))); return; }
+        double len=Math.hypot(x1-x0,y1-y0)+Math.hypot(x2-x1,y2-y1); int steps=curveSteps(len); int px=x0,py=y0;
         for(int i=1;i<=steps;i++){ double t=i/(double)steps; double u=1-t; int x=(int)Math.round(u*u*x0+2*u*t*x1+t*t*x2); int y=(int)Math.round(u*u*y0+2*u*t*y1+t*t*y2); line(px,py,x,y,r,g,b,a); px=x; py=y; }
     }
+}
+
+// Scenes for one horizontal band [y0,y1) of the shared pix[] buffer, drawn with the band's
+// PixelCanvas primitives.
+class PixelEngine extends PixelCanvas implements BandRenderer.Band {
+    // --- Timing (seconds): built-in timeline, -Dtimeline=FILE replaces it (see Timeline) ---
+    static final Timeline TIMELINE = Timeline.fromProperties(new Timeline(true)
+            .scene("street", 2.0)   // street & truck hit
+            .scene("fade", 3.0)     // fade to black
+            .scene("slime", 8.0)    // slime world
+            .key("fade.alpha", 2.0, 0).key("fade.alpha", 3.0, 255)
+            .key("slime.grow", 3.0, 0, Timeline.Easing.EASE_IN_OUT_SINE).key("slime.grow", 8.0, 1)
+            .key("slime.squash", 3.0, 0, Timeline.Easing.EASE_OUT_QUAD).key("slime.squash", 8.0, 1))
+            .requireScenes("street","fade","slime");
+    private final Timeline.Track fadeAlpha=TIMELINE.track("fade.alpha"), slimeGrow=TIMELINE.track("slime.grow"), slimeSquash=TIMELINE.track("slime.squash");
+
+    // --- Slime smoothing (to reduce shimmer) ---
+    // One-pole low-pass y += s*(x-y) stepped at SMOOTH_FPS from the scene start, evaluated in closed
+    // form: y(t) = sum_k s(1-s)^k x(t-k/SMOOTH_FPS) with x held at its scene-start value before
+    // the scene. Weights below (1-s)^SMOOTH_TAPS (< 1e-6) fold into the last tap.
+    private static final double SMOOTH = 0.25, SMOOTH_FPS = 60; // smaller SMOOTH = smoother
+    private static final int SMOOTH_TAPS = 48;
+
+    // --- Scene space -> device space ---
+    // Scenes are authored in a SCENE x SCENE unit square; it is scaled uniformly to fit the
+    // device and centered. Backgrounds (gradients, skyline, road) bleed to the device edges.
+    static final int SCENE = 600;
+    private final double scale, ox, oy;
+
+    PixelEngine(int[] pix,int w,int h,int y0,int y1){
+        super(pix,w,h,y0,y1);
+        scale = Math.min(W,H)/(double)SCENE; ox = (W - SCENE*scale)/2; oy = (H - SCENE*scale)/2;
+        layers = new LayerCache(W,y0,y1);
+        lastDrawn=new DirtyRect(0,y0,W,y1); changed=new DirtyRect(0,y0,W,y1); region=new DirtyRect(0,y0,W,y1);
+        for(int i=0;i<slotDrawn.length;i++) slotDrawn[i]=new DirtyRect(0,y0,W,y1);
+        graph = new SceneGraph(scale,ox,oy); buildGraph();
+    }
+
+    // Draw into ring buffer `slot` (same size) from the next frame on.
+    void target(int[] pix,int slot){ this.pix=pix; this.slot=slot; }
+    // Band region that differs from the previous frame (valid after render).
+    DirtyRect changed(){ return changed; }
+
+    private int X(double x){ return (int)Math.round(ox + x*scale); }
+    private int Y(double y){ return (int)Math.round(oy + y*scale); }
+    private int S(double v){ return (int)Math.round(v*scale); }
+    private int XB(double x){ return (int)Math.round(x*W/(double)SCENE); } // full-bleed x (0..SCENE -> 0..W)
+    private double sceneRight(){ return (W - ox)/scale; }                     // scene x of the device's right edge
+    private double sceneLeft(){ return -ox/scale; }
+
+    // ================= Scene helpers =================
+    // Scratch reused every frame so the street scene allocates nothing per frame
+    private final int[] qx=new int[4], qy=new int[4]; private int[] bx=new int[16], by=new int[16];
+    private static final int GRAIN = 10; private static final double GRAIN_FPS = 60; private final boolean grainMoves = FilmGrain.animated(); // new grain per frame
+    private int shakeX, shakeY;
+    private final LayerCache layers; // static backgrounds of this band
+    // Dirty rectangles: a bounds-only pass (measuring) collects what the frame draws over its static
+    // layer into `drawn`. Each ring buffer remembers its layer and what was drawn over it, so only
+    // region = drawn + that is restored and post-processed; the rest of the buffer already holds the
+    // finished (vignetted, grained) layer. `changed` is the band's difference to the previous frame.
+    private int slot; private boolean layerReady; private String layer, lastLayer;
+    private final DirtyRect lastDrawn, changed, region;
+    private final String[] slotLayer=new String[FrameRing.MAX_BUFFERS]; private final DirtyRect[] slotDrawn=new DirtyRect[FrameRing.MAX_BUFFERS];
+
+    // Axis-aligned quad (xl,yt)-(xr,yb) through the polygon filler; same pixels as the 4-point polygon
+    private void fillQuad(int xl,int yt,int xr,int yb,int r,int g,int b,int a){
+        qx[0]=xl; qx[1]=xr; qx[2]=xr; qx[3]=xl; qy[0]=yt; qy[1]=yt; qy[2]=yb; qy[3]=yb; fillPolygon(qx,qy,4,r,g,b,a);
+    }
+
+    // Background polygon authored in scene units, stretched horizontally to the full device width
+    private void fillBackdrop(int[] xs,int[] ys,int n,int r,int g,int b,int a){
+        if(bx.length<n){ bx=new int[n]; by=new int[n]; }
+        for(int i=0;i<n;i++){ bx[i]=XB(xs[i]); by[i]=Y(ys[i]); }
+        fillPolygon(bx,by,n,r,g,b,a);
+    }
 
     // ================= Scenes =================
-    private double easeOutQuad(double t){ return t*(2-t); }
-    private double easeInOutSine(double t){ return 0.5*(1-Math.cos(Math.PI*t)); }
-
-    private void render(double t){
-        if(t<=T1){
-            sceneStreet(t/T1);
-            vignette();
-            filmGrain(10);        // grain only in street scene
-        } else if(t<=T2){
-            double u=(t-T1)/(T2-T1);
-            sceneFadeBlack(u);
-            vignette();
-            // no grain in fade
-        } else {
-            double u=(t-T2)/(T3-T2);
-            sceneSlime(u);
-            vignette();
-            // no grain in slime scene (keeps it stable)
+
+    // --- Per-pass timing (read and reset by the panel after each frame) ---
+    private final long[] passNanos = new long[FrameStats.PASSES.length]; private long passStart;
+    private void pass(int id){ long now=System.nanoTime(); passNanos[id]+=now-passStart; passStart=now; }
+    void drainPasses(long[] sum){ for(int i=0;i<sum.length;i++){ sum[i]+=passNanos[i]; passNanos[i]=0; } }
+
+    @Override public void render(double t){
+        passStart=System.nanoTime();
+        int sc=TIMELINE.scene(t); String name=TIMELINE.name(sc);
+        beginFrame(sc,t);
+        scene(sc,t); pass(FrameStats.PRIMITIVES);
+        if(!name.equals("fade")){ vignette(region); pass(FrameStats.VIGNETTE); } // the fade blends an already finished frame
+        if(name.equals("street")){ filmGrain(GRAIN,region,t); pass(FrameStats.GRAIN); } // grain only in street scene (none in fade/slime keeps them stable)
+        finishFrame();
+    }
+
+    private void scene(int sc,double t){
+        double u=TIMELINE.progress(sc,t);
+        switch(TIMELINE.name(sc)){
+            case "street": sceneStreet(u); break;                                 // marks BACKGROUND itself
+            case "fade":   sceneFadeBlack(t); pass(FrameStats.BACKGROUND); break;
+            default:       sceneSlime(t,u);                                       // marks BACKGROUND itself
         }
     }
 
-    // --- compute impact shake offset (only applied to character/vehicle) ---
-    private int[] impactShake(double u){
-        if(u<=0.85) return new int[]{0,0};
+    // Pick the static layer, measure what the frame draws over it and restore the layer in `region`
+    // (or mark the whole band when the buffer holds something else; the scene then redraws it).
+    private void beginFrame(int sc,double t){
+        String name=TIMELINE.name(sc);
+        layer = name.equals("street") ? "street" : name.equals("fade") ? null : "sea"; // the fade has no static layer
+        drawn.clear(); layerReady=false; region.full();
+        if(layer==null) return;
+        measuring=true; scene(sc,t); measuring=false;
+        if(grainMoves && name.equals("street")) drawn.full(); // the grain changes every pixel of the band
+        if(!layer.equals(slotLayer[slot])) return;
+        region.set(drawn); region.add(slotDrawn[slot]);
+        layerReady = layers.restore(layer,pix,region);
+        if(!layerReady) region.full();
+    }
+
+    private void finishFrame(){
+        changed.set(drawn);
+        if(layer!=null && layer.equals(lastLayer)) changed.add(lastDrawn); else changed.full();
+        lastLayer=layer; lastDrawn.set(drawn);
+        slotLayer[slot]=layer; slotDrawn[slot].set(drawn);
+    }
+
+    // --- Retained scene graph (SceneGraph): characters are built once, scenes only move/reshape them ---
+    private final SceneGraph graph;
+    private SceneGraph.Group street, slime; private SceneGraph.Sprite stickman; private final SceneGraph.Sprite[] trucks=new SceneGraph.Sprite[6];
+    boolean ghosts=true; // trucks[1..] are the fake motion blur (off under MotionBlur)
+    private SlimeBody slimeBody; private SceneGraph.Oval eyeL, eyeR; private SceneGraph.Disc glintL, glintR; private SceneGraph.Curve smile;
+    private final SceneGraph.Disc[] droplets=new SceneGraph.Disc[16];
+
+    private void buildGraph(){
+        SceneGraph.Group root=graph.root();
+        street=root.add(new SceneGraph.Group());
+        // stickman, origin at the feet (x, groundY); actors are sprites: rasterized once, blitted per frame
+        SceneGraph.Group man=new SceneGraph.Group();
+        stickman=street.add(new SceneGraph.Sprite(man));
+        shape(man.add(new SceneGraph.Disc(0,-88,16)), 240,230,220);                     // head
+        shape(man.add(new SceneGraph.Stroke(0,-72, 0,-30, 1)), 235,235,235);           // body
+        shape(man.add(new SceneGraph.Stroke(0,-30, -22,0, 1)), 235,235,235);           // legs
+        shape(man.add(new SceneGraph.Stroke(0,-30, 22,0, 1)), 235,235,235);
+        shape(man.add(new SceneGraph.Curve(0,-62, -18,-70, -34,-60)), 235,235,235);    // arms with Bezier swing
+        shape(man.add(new SceneGraph.Curve(0,-62, 18,-70, 34,-60)), 235,235,235);
+        // truck, origin at the bottom-left of the body (x, y); it and its motion-blur ghosts share one sprite
+        SceneGraph.Group t=new SceneGraph.Group();
+        shape(t.add(SceneGraph.Poly.quad(0,-60,180,0)), 70,130,180);                       // body
+        shape(t.add(SceneGraph.Poly.quad(130,-100,180,-60)), 100,170,210);                 // cabin
+        shape(t.add(SceneGraph.Poly.quad(140,-95,175,-70)), 200,230,250).opacity(0.7);     // window
+        for(int wx: new int[]{30,100,170}) shape(t.add(new SceneGraph.Disc(wx,0,22)), 40,40,40);  // wheels
+        for(int wx: new int[]{30,100,170}) shape(t.add(new SceneGraph.Disc(wx,0,9)), 120,120,120); // hubs
+        for(int i=0;i<trucks.length;i++){ trucks[i]=street.add(new SceneGraph.Sprite(t)); trucks[i].alpha((int)(220*Math.pow(0.75,i))); }
+        // slime: measured in device pixels around its center (its radii are quantized in device space)
+        slime=root.add(new SceneGraph.Group(true)); slime.at(SCENE/2,SCENE/2+30);
+        slimeBody=slime.add(new SlimeBody());
+        eyeL=shape(slime.add(new SceneGraph.Oval(0,0,0,0)), 30,40,45); eyeR=shape(slime.add(new SceneGraph.Oval(0,0,0,0)), 30,40,45);
+        glintL=shape(slime.add(new SceneGraph.Disc(0,0,0)), 255,255,255); glintR=shape(slime.add(new SceneGraph.Disc(0,0,0)), 255,255,255);
+        glintL.opacity(200/255.0); glintR.opacity(200/255.0);
+        smile=shape(slime.add(new SceneGraph.Curve(0,0,0,0,0,0)), 40,70,45);
+        for(int i=0;i<droplets.length;i++) droplets[i]=shape(slime.add(new SceneGraph.Disc(0,0,0)), 180,250,200);
+    }
+    private static <T extends SceneGraph.Shape> T shape(T s,int r,int g,int b){ s.color(r,g,b); return s; }
+
+    // Slime body (radial shading + rim) as a graph leaf
+    private final class SlimeBody extends SceneGraph.Shape {
+        private int rx, ry;
+        void size(int rx,int ry){ if(rx!=this.rx||ry!=this.ry){ this.rx=rx; this.ry=ry; invalidate(); } }
+        @Override void update(SceneGraph.Canvas c,double unit){ bounds(-rx,-ry,rx,ry); }
+        @Override void paint(SceneGraph.Canvas c,int x,int y,int alpha){ slimeBody(x,y,rx,ry); }
+    }
+
+    // --- compute impact shake offset into shakeX/shakeY (only applied to character/vehicle) ---
+    private void impactShake(double u){
+        if(u<=0.85){ shakeX=0; shakeY=0; return; }
         double k=(u-0.85)/0.15;
-        int dx=(int)(Math.sin(60*k)*8);
-        int dy=(int)(Math.cos(50*k)*6);
-        return new int[]{dx,dy};
+        shakeX=(int)(Math.sin(60*k)*8);
+        shakeY=(int)(Math.cos(50*k)*6);
     }
 
+    // skyline silhouettes (scene units)
+    private static final int SKY_BASE=360;
+    private static final int[] SKY1_X={0,80,120,200,240,320,380,460,520,600,600,0}, SKY1_Y={SKY_BASE,300,330,280,340,310,290,320,300,280,420,420};
+    private static final int[] SKY2_X={0,60,140,180,260,300,360,420,480,540,600,600,0}, SKY2_Y={SKY_BASE+30,340,350,330,360,340,355,340,360,335,350,420,420};
+
     // --- Scene 1: street, stickman, truck with motion blur, impact shake (objects only) ---
     private void sceneStreet(double u){
-        // background gradient (STAYS STABLE)
-        for(int y=0;y<H;y++){
-            double k=y/(double)H; int r=(int)(20*(1-k)+5*k), g=(int)(25*(1-k)+10*k), b=(int)(40*(1-k)+15*k);
-            for(int x=0;x<W;x++) pix[y*W+x]=ARGB(255,r,g,b);
-        }
-        // parallax skyline (polygons)
-        int base=360; int[] xs1={0,80,120,200,240,320,380,460,520,600,600,0}; int[] ys1={base,300,330,280,340,310,290,320,300,280,420,420}; fillPolygon(xs1,ys1,xs1.length, 35,45,70,255);
-        int[] xs2={0,60,140,180,260,300,360,420,480,540,600,600,0}; int[] ys2={base+30,340,350,330,360,340,355,340,360,335,350,420,420}; fillPolygon(xs2,ys2,xs2.length, 25,35,55,255);
-        // road
-        fillPolygon(new int[]{0,600,600,0}, new int[]{430,430,600,600}, 4, 40,40,45,255);
-        // dashed center line
-        for(int x=0; x<600; x+=80){ fillPolygon(new int[]{x,x+50,x+50,x}, new int[]{510,510,520,520}, 4, 220,220,140,200); }
+        streetBackdrop();
+        pass(FrameStats.BACKGROUND);
 
         // compute shake offset near impact (APPLIED ONLY TO FOREGROUND OBJECTS)
-        int[] sh = impactShake(u);
-        int shakeX = sh[0], shakeY = sh[1];
+        impactShake(u);
 
         // stickman walking (with object-only shake)
         int sy = 430;
         int sx = 100 + (int)(180*u);
-        drawStickman(sx + shakeX, sy + shakeY);
-
-        // truck motion (with object-only shake)
-        int truckStart = W+120; int truckEnd = sx+10; int tx = (int)(truckStart + (truckEnd - truckStart)*u);
-        for(int i=0;i<6;i++){ int off=i*14; int alpha= (int)(220 * Math.pow(0.75, i)); drawTruck(tx+off + shakeX, sy-10 + shakeY, alpha); }
-    }
-
-    private void drawStickman(int x,int groundY){
-        int headR=16; int headY=groundY-88; int headX=x;
-        fillCircle(headX,headY,headR, 240,230,220,255); // head
-        // body + limbs (thick lines)
-        thickLine(headX,headY+headR, headX,groundY-30, 1, 235,235,235,255);
-        thickLine(headX,groundY-30, headX-22,groundY, 1, 235,235,235,255);
-        thickLine(headX,groundY-30, headX+22,groundY, 1, 235,235,235,255);
-        // arms with Bezier swing
-        qBezier(headX, headY+headR+10, headX-18, groundY-70, headX-34, groundY-60, 235,235,235,255);
-        qBezier(headX, headY+headR+10, headX+18, groundY-70, headX+34, groundY-60, 235,235,235,255);
-    }
-
-    private void drawTruck(int x,int y,int alpha){
-        // body rectangle (polygon)
-        fillPolygon(new int[]{x, x+180, x+180, x}, new int[]{y-60, y-60, y, y}, 4, 70,130,180, alpha);
-        // cabin polygon
-        fillPolygon(new int[]{x+130, x+180, x+180, x+130}, new int[]{y-100, y-100, y-60, y-60}, 4, 100,170,210, alpha);
-        // window polygon
-        fillPolygon(new int[]{x+140,x+175,x+175,x+140}, new int[]{y-95,y-95,y-70,y-70}, 4, 200,230,250, (int)(alpha*0.7));
-        // wheels (filled circles)
-        fillCircle(x+30, y, 22, 40,40,40, alpha);
-        fillCircle(x+100,y, 22, 40,40,40, alpha);
-        fillCircle(x+170,y, 22, 40,40,40, alpha);
-        fillCircle(x+30, y, 9, 120,120,120, alpha);
-        fillCircle(x+100,y, 9, 120,120,120, alpha);
-        fillCircle(x+170,y, 9, 120,120,120, alpha);
+        stickman.at(sx + shakeX, sy + shakeY);
+
+        // truck motion (with object-only shake); ghosts fade out behind it, off-screen ones are culled
+        int truckStart = (int)Math.round(sceneRight())+120; int truckEnd = sx+10; int tx = (int)(truckStart + (truckEnd - truckStart)*u);
+        for(int i=0;i<trucks.length;i++){ int off=i*14; trucks[i].at(tx+off + shakeX, sy-10 + shakeY); trucks[i].visible(i==0||ghosts); }
+        street.visible(true); slime.visible(false); graph.draw(this);
+    }
+
+    // static street layer: sky gradient, skyline, road, dashes (STAYS STABLE, cached)
+    private void streetBackdrop(){
+        if(measuring || layerReady || layers.restore("street",pix)) return;
+        // background gradient
+        for(int y=y0;y<y1;y++){
+            double k=y/(double)H; int r=(int)(20*(1-k)+5*k), g=(int)(25*(1-k)+10*k), b=(int)(40*(1-k)+15*k);
+            for(int x=0;x<W;x++) pix[y*W+x]=ARGB(255,r,g,b);
+        }
+        // parallax skyline (polygons)
+        fillBackdrop(SKY1_X,SKY1_Y,SKY1_X.length, 35,45,70,255);
+        fillBackdrop(SKY2_X,SKY2_Y,SKY2_X.length, 25,35,55,255);
+        // road (bleeds to the device edges)
+        fillQuad(0,Y(430),W,H, 40,40,45,255);
+        // dashed center line
+        for(int x=(int)Math.floor(sceneLeft()/80)*80; x<sceneRight(); x+=80){ fillQuad(X(x),Y(510),X(x+50),Y(520), 220,220,140,200); }
+        layers.store("street",pix);
     }
 
     // --- Scene 2: fade to black ---
-    private void sceneFadeBlack(double u){ clear(ARGB(255,0,0,0)); int a=(int)(255*u);
-        for(int y=0;y<H;y++) for(int x=0;x<W;x++) pblend(x,y,0,0,0,a);
+    // Fades the last frame of the previous scene (rendered once, kept as layer "fade.from<scene>")
+    // to black: restore + blend is one pass; a fully black frame is just a fill.
+    private static final String FADE_FROM="fade.from";
+    private void sceneFadeBlack(double t){ int a=(int)fadeAlpha.value(t), prev=TIMELINE.scene(t)-1; String from=FADE_FROM+prev;
+        if(a>=255 || prev<0 || TIMELINE.name(prev).equals("fade")){ clear(ARGB(255,0,0,0)); return; }
+        if(layers.restoreBlended(from,pix,0,0,0,a)) return;
+        // first fade frame (or no layer cache): the previous scene's last frame as it was presented,
+        // vignetted and (street) grained, so the fade starts exactly where that scene stopped
+        double end=TIMELINE.end(prev); scene(prev,end); vignette(region); if(TIMELINE.name(prev).equals("street")) filmGrain(GRAIN,region,end);
+        layers.store(from,pix);
+        SpanBlend.blend(pix, y0*W, y1*W, 0,0,0,a);
     }
 
     // --- Scene 3: Slime world (stabilized) ---
-    private void sceneSlime(double u){
-        // oceanic gradient background
-        for(int y=0;y<H;y++){
-            double k=y/(double)H; int r=(int)(5*(1-k)+20*k), g=(int)(15*(1-k)+80*k), b=(int)(10*(1-k)+60*k);
-            for(int x=0;x<W;x++) pix[y*W+x]=ARGB(255,r,g,b);
+    private void sceneSlime(double t,double u){
+        // oceanic gradient background (cached)
+        if(!measuring && !layerReady && !layers.restore("sea",pix)){
+            for(int y=y0;y<y1;y++){
+                double k=y/(double)H; int r=(int)(5*(1-k)+20*k), g=(int)(15*(1-k)+80*k), b=(int)(10*(1-k)+60*k);
+                for(int x=0;x<W;x++) pix[y*W+x]=ARGB(255,r,g,b);
+            }
+            layers.store("sea",pix);
         }
         // soft caustic stripes (reduced sway a bit to keep scene calmer)
         for(int i=0;i<8;i++){
-            double ph = i*0.6 + u*2.0; int yy = (int)(H*(0.1 + 0.1*Math.sin(ph)));
-            thickLine(0,yy, W, yy+(int)(10*Math.sin(ph+1.3)), 1, 30,70,55,35);
+            double ph = i*0.6 + u*2.0; int yy = Y((int)(SCENE*(0.1 + 0.1*Math.sin(ph))));
+            thickLine(0,yy, W, yy+S((int)(10*Math.sin(ph+1.3))), S(1), 30,70,55,35);
         }
+        pass(FrameStats.BACKGROUND);
 
-        int cx=W/2, cy=H/2+30; double rx0=130, ry0=110;
+        int cx=X(SCENE/2), cy=Y(SCENE/2+30); double rx0=130, ry0=110;
 
         // breathing with smoothing to avoid pixel jitter on ellipse boundary
-        double pulse = 0.08*Math.sin(u*Math.PI*6);
-        double rxTarget = rx0*(1 + pulse + 0.25*easeInOutSine(u));
-        double ryTarget = ry0*(1 - pulse + 0.12*easeOutQuad(u));
-
-        // low-pass filter (temporal smoothing)
-        double s = 0.25; // smaller = smoother
-        rxSm = rxSm + s * (rxTarget - rxSm);
-        rySm = rySm + s * (ryTarget - rySm);
+        int sc=TIMELINE.scene(t); double rxS=0, ryS=0, w=SMOOTH;
+        for(int k=0;k<=SMOOTH_TAPS;k++){
+            double tk=Math.max(t-k/SMOOTH_FPS, TIMELINE.start(sc)), uk=TIMELINE.progress(sc,tk);
+            if(k==SMOOTH_TAPS) w=w/SMOOTH; // tail: (1-s)^K
+            double pulse = 0.08*Math.sin(uk*Math.PI*6);
+            rxS += w*rx0*(1 + pulse + 0.25*slimeGrow.value(tk));
+            ryS += w*ry0*(1 - pulse + 0.12*slimeSquash.value(tk));
+            w *= 1-SMOOTH;
+        }
 
-        int rx = (int)Math.round(rxSm);
-        int ry = (int)Math.round(rySm);
+        int rx = (int)Math.round(rxS*scale);
+        int ry = (int)Math.round(ryS*scale);
 
+        // slime graph nodes, positioned relative to (cx,cy) in device pixels
         // slime body: radial shading & rim light
-        slimeBody(cx,cy,rx,ry);
+        slimeBody.size(rx,ry);
         // eyes (elliptical via filled ellipse with darker color)
         int ex = (int)(rx*0.40), eyOff = (int)(-ry*0.18); int eRx=(int)(rx*0.26), eRy=(int)(ry*0.20);
-        fillEllipse(cx-ex, cy+eyOff, eRx, eRy, 30,40,45,255);
-        fillEllipse(cx+ex, cy+eyOff, eRx, eRy, 30,40,45,255);
+        eyeL.set(-ex, eyOff, eRx, eRy); eyeR.set(ex, eyOff, eRx, eRy);
         // highlights (midpoint circles)
-        int hx=(int)(cx-ex - eRx*0.15), hy=(int)(cy+eyOff - eRy*0.15); int hr=9+(int)(3*Math.sin(u*15));
-        fillCircle(hx,hy, hr, 255,255,255,200); fillCircle(hx+2*ex,hy, hr, 255,255,255,200);
+        int hx=(int)(cx-ex - eRx*0.15), hy=(int)(cy+eyOff - eRy*0.15); int hr=S(9+(int)(3*Math.sin(u*15)));
+        glintL.set(hx-cx, hy-cy, hr); glintR.set(hx+2*ex-cx, hy-cy, hr);
         // smile (Bezier)
         int mw=(int)(rx*(0.5 + 0.15*Math.sin(u*4*Math.PI))), mh=(int)(ry*0.18);
-        qBezier(cx-mw/2, cy+(int)(ry*0.3), cx, cy+(int)(ry*0.3)+mh, cx+mw/2, cy+(int)(ry*0.3), 40,70,45,255);
+        smile.set(-mw/2, (int)(ry*0.3), 0, (int)(ry*0.3)+mh, mw/2, (int)(ry*0.3));
         // floating droplets
-        Random rnd = new Random(42);
-        for(int i=0;i<16;i++){
-            double ang = i*(2*Math.PI/16.0) + u*6; int px = cx + (int)((rx+18)*Math.cos(ang)); int py = cy + (int)((ry+18)*Math.sin(ang)); int pr = 6 + (int)(3*Math.sin(u*15+i)); int al = 110 + (int)(110*Math.sin(u*15+i)); al=Math.max(0,Math.min(255,al)); fillCircle(px,py,pr, 180,250,200, al);
+        for(int i=0;i<droplets.length;i++){
+            double ang = i*(2*Math.PI/16.0) + u*6; int px = (int)((rx+S(18))*Math.cos(ang)); int py = (int)((ry+S(18))*Math.sin(ang)); int pr = S(6 + (int)(3*Math.sin(u*15+i))); int al = 110 + (int)(110*Math.sin(u*15+i)); al=Math.max(0,Math.min(255,al));
+            droplets[i].set(px,py,pr); droplets[i].opacity(al/255.0);
         }
+        street.visible(false); slime.visible(true); graph.draw(this);
     }
 
-    private void slimeBody(int cx,int cy,int rx,int ry){
-        // Fill ellipse with radial gradient-like shading & rim light
-        for(int yy=-ry; yy<=ry; yy++){
-            double yTerm = (yy*yy)/(double)(ry*ry); if(yTerm>1) continue; int xx = (int)Math.floor(rx*Math.sqrt(1 - yTerm));
-            for(int xxp=-xx; xxp<=xx; xxp++){
-                double nx = (xxp)/(double)rx, ny = (yy)/(double)ry; double d = Math.sqrt(nx*nx + ny*ny); // 0..1
-                int r = (int)(20 + (70-20)*(1-d)); int g = (int)(50 + (180-50)*(1-d)); int b = (int)(30 + (140-30)*(1-d));
-                // subtle inner light off-center
-                double lx = (xxp - rx*0.2)/(rx*1.2), ly=(yy - ry*0.3)/(ry*1.2); double l = Math.exp(-(lx*lx+ly*ly)*2.5);
-                int rr = clamp(r + (int)(30*l)); int gg=clamp(g + (int)(40*l)); int bb=clamp(b + (int)(35*l));
-                pblend(cx+xxp, cy+yy, rr,gg,bb, 230);
-            }
-        }
+    void slimeBody(int cx,int cy,int rx,int ry){
+        if(measuring){ drawn.add(cx-rx,cy-ry,cx+rx,cy+ry); return; }
+        // Fill ellipse with radial gradient-like shading (LUTs, see RadialShade) & rim light
+        slimeShade.fill(pix,W,y0,y1,cx,cy,rx,ry,230);
         // rim
         ellipse(cx,cy,rx,ry, 180,255,220,180);
     }
 
-    private int clamp(int v){ return v<0?0:(v>255?255:v); }
+    // Slime shading: body ramp darkening towards the rim + subtle inner light off-center (exp falloff)
+    private final RadialShade slimeShade = new RadialShade()
+            .term(0,0,1,1,1, d -> RadialShade.rgb((int)(20 + (70-20)*(1-d)), (int)(50 + (180-50)*(1-d)), (int)(30 + (140-30)*(1-d))))
+            .term(0.2,0.3,1.2,1.2,1.25, d -> { double l=Math.exp(-d*d*2.5); return RadialShade.rgb((int)(30*l),(int)(40*l),(int)(35*l)); });
 
     // --- Polish ---
-    private void vignette(){
-        int cx=W/2, cy=H/2; double maxd=Math.hypot(cx,cy);
-        for(int y=0;y<H;y++){
-            for(int x=0;x<W;x++){
-                double d = Math.hypot(x-cx,y-cy)/maxd; int a = (int)(180*Math.pow(d,2.2)); if(a>0) pblend(x,y,0,0,0,a);
+    // Vignette only depends on W,H and its two parameters, so the per-pixel hypot/pow is done once
+    // into a mask of (255 - alpha) for this band's rows; each frame is then a multiply-only pass
+    // equivalent to pblend(x,y,0,0,0,alpha).
+    private double vigStrength=180, vigFalloff=2.2; private byte[] vigMask; // null = rebuild
+
+    void setVignette(double strength,double falloff){
+        if(strength<0||strength>255||falloff<=0) throw new IllegalArgumentException("vignette strength must be 0..255 and falloff > 0");
+        vigStrength=strength; vigFalloff=falloff; vigMask=null;
+        Arrays.fill(slotLayer,null); lastLayer=null; // finished layers in the buffers used the old mask
+        layers.evict(FADE_FROM);                     // and so did the stored fade sources
+    }
+
+    private void buildVignette(){
+        int cx=W/2, cy=H/2; double maxd=Math.hypot(cx,cy); byte[] m=new byte[(y1-y0)*W];
+        for(int y=y0, i=0;y<y1;y++){
+            for(int x=0;x<W;x++,i++){
+                double d = Math.hypot(x-cx,y-cy)/maxd; int a = (int)(vigStrength*Math.pow(d,vigFalloff)); m[i]=(byte)(255-Math.max(0,a));
             }
         }
+        vigMask=m;
     }
-    private void filmGrain(int strength){
-        Random r = new Random(1234); for(int i=0;i<W*H/strength;i++){ int x=r.nextInt(W), y=r.nextInt(H); int k=r.nextInt(21)-10; int idx=y*W+x; int c=pix[idx]; int a=(c>>>24)&255, rr=(c>>>16)&255, gg=(c>>>8)&255, bb=c&255; rr=clamp(rr+k); gg=clamp(gg+k); bb=clamp(bb+k); pix[idx]=ARGB(a,rr,gg,bb); }
+
+    void vignette(DirtyRect rc){
+        if(vigMask==null) buildVignette();
+        byte[] m=vigMask;
+        for(int y=rc.y0;y<rc.y1;y++){
+            for(int x=rc.x0, i=(y-y0)*W+x, idx=y*W+x; x<rc.x1; x++, i++, idx++){
+                int k=m[i]&255; if(k==255) continue; // alpha 0 -> untouched
+                int c=pix[idx];
+                int a=(255-k) + div255(((c>>>24)&255)*k), r=div255(((c>>>16)&255)*k), g=div255(((c>>>8)&255)*k), b=div255((c&255)*k);
+                pix[idx]=(a<<24)|(r<<16)|(g<<8)|b;
+            }
+        }
     }
+
+    // exact floor(x/255) for 0 <= x <= 255*255
+    private static int div255(int x){ return (x + 1 + (x>>>8)) >>> 8; }
+    // Grain of frame round(t*GRAIN_FPS) over this band's part of rc (1 grain texel in `strength`)
+    void filmGrain(int strength,DirtyRect rc,double t){ FilmGrain.apply(pix, W, rc, strength, grainMoves ? Math.round(t*GRAIN_FPS) : 0); }
 }